@@ -0,0 +1,222 @@
+package game;
+
+import city.cs.engine.SoundClip;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads every image and sound the game uses before the first level starts.
+ * Reads a manifest of the files under data/, decodes them in parallel on a small thread pool
+ * and keeps one shared copy of each, so entities look assets up instead of loading them again.
+ */
+
+public final class AssetManager {
+    //Fields
+    private static final String DATA_DIR = "data";
+    private static final String MANIFEST = DATA_DIR + "/manifest.txt";
+    private static final int MAX_THREADS = 4;
+
+    private static final Map<String, BufferedImage> images = new ConcurrentHashMap<>();
+    private static final Map<String, SoundClip> sounds = new ConcurrentHashMap<>();
+    private static final Set<String> failed = ConcurrentHashMap.newKeySet(); //Assets that could not be loaded
+
+    private AssetManager() {
+    }
+
+    /**
+     * Receives progress updates while assets are loading.
+     */
+    public interface ProgressListener {
+        /**
+         * Called each time an asset has finished loading.
+         *
+         * @param loaded the number of assets loaded so far.
+         * @param total  the total number of assets in the manifest.
+         * @param path   the asset that just finished.
+         */
+        void progress(int loaded, int total, String path);
+    }
+
+    /**
+     * Reads the asset manifest.
+     * Uses data/manifest.txt (one path per line, # for comments) if it exists,
+     * otherwise lists every image and sound under data/.
+     *
+     * @return the list of asset paths.
+     */
+    public static List<String> readManifest() {
+        List<String> paths = new ArrayList<>();
+        File manifest = new File(MANIFEST);
+        if (manifest.isFile()) {
+            try {
+                for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        paths.add(line);
+                    }
+                }
+                return paths;
+            } catch (IOException e) {
+                System.out.println("Error reading asset manifest: " + e);
+                paths.clear();
+            }
+        }
+        listAssets(new File(DATA_DIR), paths);
+        Collections.sort(paths);
+        return paths;
+    }
+
+    //Walks the data folder looking for images and sounds
+    private static void listAssets(File dir, List<String> paths) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                listAssets(file, paths);
+            } else if (isImage(file.getName()) || isSound(file.getName())) {
+                paths.add(file.getPath().replace(File.separatorChar, '/'));
+            }
+        }
+    }
+
+    /**
+     * Loads every asset in the manifest in parallel and waits for them all to finish.
+     *
+     * @param listener told about progress as each asset finishes, may be null.
+     */
+    public static void preload(ProgressListener listener) {
+        List<String> paths = readManifest();
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "asset-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger loaded = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (String path : paths) {
+            tasks.add(pool.submit(() -> {
+                load(path);
+                if (listener != null) {
+                    listener.progress(loaded.incrementAndGet(), paths.size(), path);
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                System.out.println("Error loading asset: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Preloads all assets while showing a small splash window with a progress bar.
+     */
+    public static void preloadWithSplash() {
+        if (GraphicsEnvironment.isHeadless()) {
+            preload(null);
+            return;
+        }
+        JProgressBar bar = new JProgressBar();
+        bar.setStringPainted(true);
+        bar.setString("Loading...");
+        JWindow splash = new JWindow();
+        JLabel title = new JLabel("Loading assets", SwingConstants.CENTER);
+        title.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        splash.add(title, BorderLayout.CENTER);
+        splash.add(bar, BorderLayout.SOUTH);
+        splash.setSize(300, 80);
+        splash.setLocationRelativeTo(null);
+        splash.setVisible(true);
+
+        preload((loaded, total, path) -> SwingUtilities.invokeLater(() -> {
+            bar.setMaximum(total);
+            bar.setValue(loaded);
+            bar.setString(loaded + " / " + total);
+        }));
+        splash.dispose();
+    }
+
+    /**
+     * Returns the shared decoded copy of an image, loading it now if it was not preloaded.
+     *
+     * @param path the file path of the image.
+     * @return the decoded image, or null if it could not be loaded.
+     */
+    public static BufferedImage getImage(String path) {
+        BufferedImage image = images.get(path);
+        if (image == null) {
+            load(path);
+            image = images.get(path);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the shared sound clip for a file, loading it now if it was not preloaded.
+     *
+     * @param path the file path of the sound.
+     * @return the sound clip, or null if it could not be loaded.
+     */
+    public static SoundClip getSound(String path) {
+        SoundClip sound = sounds.get(path);
+        if (sound == null) {
+            load(path);
+            sound = sounds.get(path);
+        }
+        return sound;
+    }
+
+    //Decodes one asset and stores the shared copy
+    private static void load(String path) {
+        if (failed.contains(path)) {
+            return;
+        }
+        try {
+            if (isImage(path)) {
+                BufferedImage image = ImageIO.read(new File(path));
+                if (image != null) {
+                    images.putIfAbsent(path, image);
+                } else {
+                    failed.add(path);
+                }
+            } else if (isSound(path)) {
+                sounds.putIfAbsent(path, new SoundClip(path));
+            }
+        } catch (Exception e) {
+            failed.add(path);
+            System.out.println("Error loading " + path + ": " + e);
+        }
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".gif");
+    }
+
+    private static boolean isSound(String name) {
+        return name.toLowerCase().endsWith(".wav");
+    }
+}
@@ -0,0 +1,53 @@
+package game;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the old and new ways of painting the level background.
+ * The old way decodes the image with ImageIcon and scales it on every frame,
+ * the new way blits the pre-scaled image held by BackgroundCache.
+ * Run with an optional image path: java game.BackgroundBenchmark data/background.jpg
+ */
+
+public class BackgroundBenchmark {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final int WARMUP = 200;
+    private static final int FRAMES = 1000;
+
+    public static void main(String[] args) {
+        String path = args.length > 0 ? args[0] : "data/background.jpg";
+        BufferedImage frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        JPanel panel = new JPanel();
+
+        //Old paintBackground: decode and scale every frame
+        Runnable legacy = () -> {
+            Image background = new ImageIcon(path).getImage();
+            g.drawImage(background, 0, 0, WIDTH, HEIGHT, panel);
+        };
+
+        //New paintBackground: blit the cached image
+        BackgroundCache cache = new BackgroundCache(panel);
+        cache.prepare(path, WIDTH, HEIGHT);
+        Runnable cached = () -> cache.draw(g, WIDTH, HEIGHT);
+
+        System.out.printf("ImageIcon + scale per frame: %8.1f us/frame%n", measure(legacy));
+        System.out.printf("BackgroundCache blit:        %8.1f us/frame%n", measure(cached));
+        g.dispose();
+    }
+
+    //Runs the paint a number of times and returns the average time in microseconds
+    private static double measure(Runnable paint) {
+        for (int i = 0; i < WARMUP; i++) {
+            paint.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            paint.run();
+        }
+        return (System.nanoTime() - start) / 1000.0 / FRAMES;
+    }
+}
@@ -0,0 +1,153 @@
+package game;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Keeps a pre-scaled copy of the current level's background image.
+ * The image is decoded and scaled once when the level starts, then simply copied to the screen every frame.
+ * Uses a VolatileImage when the display supports it, otherwise falls back to a BufferedImage.
+ */
+
+public class BackgroundCache {
+    //Fields
+    private final Component view; //The component the background is drawn on
+    private String key; //File path of the cached background (GameLevel.getBackgroundImage())
+    private int width; //Width the cached image was scaled to
+    private int height; //Height the cached image was scaled to
+    private BufferedImage scaled; //Scaled copy, also used to restore the volatile image
+    private VolatileImage accelerated; //Display-compatible copy, may be null
+
+    /**
+     * Constructor for the background cache.
+     *
+     * @param view the component the background will be drawn on.
+     */
+    public BackgroundCache(Component view) {
+        this.view = view;
+    }
+
+    /**
+     * Builds the cached background for a level.
+     * Does nothing if the same image is already cached at this size.
+     *
+     * @param path   the file path of the background image.
+     * @param width  the width to scale the image to.
+     * @param height the height to scale the image to.
+     */
+    public void prepare(String path, int width, int height) {
+        if (path.equals(key) && width == this.width && height == this.height && scaled != null) {
+            return;
+        }
+        key = path;
+        rebuild(width, height);
+    }
+
+    /**
+     * Throws away the cached images so they are rebuilt on the next draw.
+     */
+    public void invalidate() {
+        scaled = null;
+        if (accelerated != null) {
+            accelerated.flush();
+            accelerated = null;
+        }
+    }
+
+    /**
+     * Draws the cached background, rebuilding it first if the view size has changed.
+     *
+     * @param g      the Graphics2D object used to draw.
+     * @param width  the current width of the view.
+     * @param height the current height of the view.
+     */
+    public void draw(Graphics2D g, int width, int height) {
+        if (key == null || width <= 0 || height <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (scaled == null || width != this.width || height != this.height) {
+            rebuild(width, height);
+        }
+
+        if (accelerated == null) {
+            g.drawImage(scaled, 0, 0, null);
+        } else {
+            //Volatile images can lose their contents at any time, so check and redraw if needed
+            do {
+                int status = accelerated.validate(view.getGraphicsConfiguration());
+                if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    accelerated = createAccelerated(width, height);
+                    if (accelerated == null) {
+                        g.drawImage(scaled, 0, 0, null);
+                        break;
+                    }
+                    restoreAccelerated();
+                } else if (status == VolatileImage.IMAGE_RESTORED) {
+                    restoreAccelerated();
+                }
+                g.drawImage(accelerated, 0, 0, null);
+            } while (accelerated.contentsLost());
+        }
+        PerfStats.record("paint.background", System.nanoTime() - start);
+    }
+
+    //Decodes and scales the image once, then copies it into a volatile image if possible
+    private void rebuild(int width, int height) {
+        long start = System.nanoTime();
+        invalidate();
+        this.width = width;
+        this.height = height;
+
+        Image source = loadImage(key);
+        scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+
+        accelerated = createAccelerated(width, height);
+        if (accelerated != null) {
+            restoreAccelerated();
+        }
+        PerfStats.record("background.rebuild", System.nanoTime() - start);
+    }
+
+    //Creates a volatile image matching the display, or returns null when there is no display
+    private VolatileImage createAccelerated(int width, int height) {
+        GraphicsConfiguration gc = view.getGraphicsConfiguration();
+        if (gc == null) {
+            if (GraphicsEnvironment.isHeadless()) {
+                return null;
+            }
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return gc.createCompatibleVolatileImage(width, height);
+    }
+
+    //Copies the scaled image into the volatile image
+    private void restoreAccelerated() {
+        Graphics2D g = accelerated.createGraphics();
+        g.drawImage(scaled, 0, 0, null);
+        g.dispose();
+    }
+
+    /**
+     * Decodes an image file fully, so it is ready to be drawn straight away.
+     *
+     * @param path the file path of the image.
+     * @return the decoded image.
+     */
+    static Image loadImage(String path) {
+        //Use the copy decoded by the asset preloader if there is one
+        BufferedImage image = AssetManager.getImage(path);
+        if (image != null) {
+            return image;
+        }
+        //ImageIcon waits for the image to finish loading, so this is still fully decoded
+        return new ImageIcon(path).getImage();
+    }
+}
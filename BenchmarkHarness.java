@@ -0,0 +1,118 @@
+package game;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small micro-benchmark runner in the style of JMH.
+ * Each benchmark is run for a number of timed warmup iterations, then measured over several
+ * iterations. It reports the average time per operation and, like JMH's GC profiler, the bytes
+ * allocated per operation and the number of garbage collections during measurement.
+ */
+
+public class BenchmarkHarness {
+    //Fields
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationNanos;
+    private final List<String> results = new ArrayList<>();
+
+    /**
+     * A benchmarked operation. It should return something so the JIT cannot remove the work.
+     */
+    public interface Operation {
+        Object run();
+    }
+
+    /**
+     * Constructor for the harness.
+     *
+     * @param warmupIterations the number of warmup iterations.
+     * @param iterations       the number of measured iterations.
+     * @param iterationMillis  how long each iteration runs for, in milliseconds.
+     */
+    public BenchmarkHarness(int warmupIterations, int iterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    /**
+     * Runs one benchmark and stores its result line.
+     *
+     * @param name      the benchmark name.
+     * @param operation the operation to measure.
+     */
+    public void run(String name, Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation);
+        }
+        double[] nsPerOp = new double[iterations];
+        long totalOps = 0;
+        long bytes = PerfStats.threadAllocatedBytes();
+        long gcCount = gcCount();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            long ops = iteration(operation);
+            nsPerOp[i] = (double) (System.nanoTime() - start) / ops;
+            totalOps += ops;
+        }
+        bytes = PerfStats.threadAllocatedBytes() - bytes;
+        gcCount = gcCount() - gcCount;
+
+        double mean = 0;
+        for (double v : nsPerOp) {
+            mean += v;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double v : nsPerOp) {
+            variance += (v - mean) * (v - mean);
+        }
+        double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+        String line = String.format("%-44s %14.1f +- %10.1f ns/op %12.1f B/op %6d gc",
+                name, mean, error, bytes < 0 ? Double.NaN : (double) bytes / totalOps, gcCount);
+        results.add(line);
+        System.out.println(line);
+    }
+
+    /**
+     * Prints every result collected so far as one table.
+     */
+    public void printSummary() {
+        System.out.println();
+        System.out.printf("%-44s %14s    %10s %18s %9s%n", "Benchmark", "Score", "Error", "Alloc", "GCs");
+        for (String line : results) {
+            System.out.println(line);
+        }
+    }
+
+    //Runs the operation repeatedly for one iteration and returns how many times it ran
+    private long iteration(Operation operation) {
+        long ops = 0;
+        long end = System.nanoTime() + iterationNanos;
+        Object sink = null;
+        do {
+            //Check the clock every few calls so very short operations are not dominated by nanoTime
+            for (int i = 0; i < 16; i++) {
+                sink = operation.run();
+            }
+            ops += 16;
+        } while (System.nanoTime() < end);
+        if (sink == this) {
+            System.out.println(); //Never true, keeps the result alive
+        }
+        return ops;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,38 @@
+package game;
+
+/**
+ * A level with nothing in it, for benchmarks and tools that create their own bodies.
+ * Enemies, moving platforms and the like get their systems from the level they are in,
+ * so they need a GameLevel rather than a plain World.
+ */
+
+public class BlankLevel extends GameLevel {
+    /**
+     * Nothing is created; the caller adds its own bodies.
+     */
+    @Override
+    protected void populate() {
+    }
+
+    /**
+     * A blank level has no exit.
+     */
+    @Override
+    protected void addTriggers() {
+    }
+
+    @Override
+    public String getBackgroundImage() {
+        return "data/background.jpg";
+    }
+
+    /**
+     * A blank level has no exit.
+     *
+     * @return the largest float, which can never be reached.
+     */
+    @Override
+    public float getExitHeight() {
+        return Float.MAX_VALUE;
+    }
+}
@@ -39,4 +39,13 @@ public class Camera {
         //Sets the new centre for the view
         view.setCentre(new Vec2(centerX, centerY));
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets how far above the player the camera is centred, so painting can centre a frame on
+     * a player height without reading the player's body.
+     * @return the vertical offset.
+     */
+    public float getOffsetY() {
+        return offsetY;
+    }
+}
@@ -0,0 +1,276 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a tall level in and out in horizontal bands as the camera moves.
+ * Only bands within a window around the camera have real bodies in the world; bands that
+ * leave the window are parked (their state is saved and the bodies destroyed) and are
+ * rebuilt when the camera comes back. Collected coins and vanished platforms stay gone.
+ * The cost per step depends on the size of the window, not the height of the level.
+ */
+
+public class ChunkManager {
+    //Fields
+    private final GameLevel level;
+    private final float bandHeight; //Height of one band in world units
+    private final int window; //Number of bands kept alive above and below the camera's band
+    private final Map<Integer, List<Entry>> bands = new HashMap<>();
+    private boolean started = false;
+    private int centreBand;
+    private int liveBodies;
+    //Box around every platform added, whether or not it is in the world: {minX, minY, maxX, maxY}
+    private final float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+
+    /**
+     * Constructor for the chunk manager.
+     *
+     * @param level      the level being streamed.
+     * @param bandHeight the height of each band.
+     * @param window     how many bands to keep alive above and below the camera.
+     */
+    public ChunkManager(GameLevel level, float bandHeight, int window) {
+        this.level = level;
+        this.bandHeight = bandHeight;
+        this.window = window;
+    }
+
+    /**
+     * Adds a static platform (or wall) to the level.
+     */
+    public void addPlatform(float width, float height, float x, float y) {
+        include(x - width, y - height, x + width, y + height);
+        add(new Entry(y - height, y + height) {
+            @Override
+            Body spawn() {
+                return new Platform(level, width, height, x, y);
+            }
+        });
+    }
+
+    /**
+     * Adds a disappearing platform. Once it has vanished it is never rebuilt.
+     */
+    public void addDisappearing(float width, float height, float x, float y) {
+        include(x - width, y - height, x + width, y + height);
+        add(new Entry(y - height, y + height) {
+            @Override
+            Body spawn() {
+                return new DisappearingPlatform(level, width, height, x, y);
+            }
+
+            @Override
+            void park(Body body) {
+                //A platform that has started flickering would be gone in moments anyway
+                if (((DisappearingPlatform) body).isTriggered()) {
+                    gone = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a moving platform, remembering how far along its path it was when parked.
+     */
+    public void addMoving(float width, float height, Vec2 start, Vec2 end, float speed) {
+        include(Math.min(start.x, end.x) - width, Math.min(start.y, end.y) - height,
+                Math.max(start.x, end.x) + width, Math.max(start.y, end.y) + height);
+        add(new Entry(Math.min(start.y, end.y) - height, Math.max(start.y, end.y) + height) {
+            private float progress = 0;
+
+            @Override
+            Body spawn() {
+                MovingPlatform platform = new MovingPlatform(level, width, height, start, end, speed);
+                platform.setPathProgress(progress);
+                return platform;
+            }
+
+            @Override
+            void park(Body body) {
+                progress = ((MovingPlatform) body).getPathProgress();
+            }
+        });
+    }
+
+    /**
+     * Adds a patrolling enemy, remembering its position and direction when parked.
+     */
+    public void addPatrol(Shape shape, float x, float y, float leftLimit, float rightLimit) {
+        add(new Entry(y - 0.5f, y + 0.5f) {
+            private Vec2 position = new Vec2(x, y);
+            private boolean movingRight = true;
+
+            @Override
+            Body spawn() {
+                PatrollingEnemy enemy = new PatrollingEnemy(level, shape, position.x, position.y, leftLimit, rightLimit);
+                enemy.setMovingRight(movingRight);
+                return enemy;
+            }
+
+            @Override
+            void park(Body body) {
+                PatrollingEnemy enemy = (PatrollingEnemy) body;
+                position = enemy.getPosition().clone();
+                movingRight = enemy.isMovingRight();
+            }
+        });
+    }
+
+    /**
+     * Adds a collectible. Once collected it is never rebuilt.
+     */
+    public void addCollectible(float x, float y) {
+        add(new Entry(y - 0.5f, y + 0.5f) {
+            @Override
+            Body spawn() {
+                return level.getCollectibleManager().spawnCollectible(x, y);
+            }
+
+            @Override
+            void destroy(Body body) {
+                level.getCollectibleManager().removeCollectible((Collectible) body);
+            }
+        });
+    }
+
+    /**
+     * Brings bands near the camera into the world and parks the ones that have left the window.
+     * Does nothing unless the camera has moved into a different band.
+     *
+     * @param centreY the height of the camera's centre.
+     */
+    public void update(float centreY) {
+        int band = bandOf(centreY);
+        if (started && band == centreBand) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (started) {
+            for (int b = centreBand - window; b <= centreBand + window; b++) {
+                if (b < band - window || b > band + window) {
+                    setBandActive(b, false);
+                }
+            }
+        }
+        for (int b = band - window; b <= band + window; b++) {
+            if (!started || b < centreBand - window || b > centreBand + window) {
+                setBandActive(b, true);
+            }
+        }
+        started = true;
+        centreBand = band;
+        PerfStats.record("chunks.update", System.nanoTime() - start);
+    }
+
+    /**
+     * Returns how many streamed bodies are currently in the world.
+     *
+     * @return the number of live streamed bodies.
+     */
+    public int getLiveBodies() {
+        return liveBodies;
+    }
+
+    /**
+     * Gets the box around every platform in the level, including those in bands not yet built.
+     *
+     * @return {minX, minY, maxX, maxY}, or null if no platforms have been added.
+     */
+    public float[] getBounds() {
+        return bounds[0] > bounds[2] ? null : bounds.clone();
+    }
+
+    private void include(float minX, float minY, float maxX, float maxY) {
+        bounds[0] = Math.min(bounds[0], minX);
+        bounds[1] = Math.min(bounds[1], minY);
+        bounds[2] = Math.max(bounds[2], maxX);
+        bounds[3] = Math.max(bounds[3], maxY);
+    }
+
+    //Registers an entry in every band it overlaps
+    private void add(Entry entry) {
+        for (int b = bandOf(entry.bottom); b <= bandOf(entry.top); b++) {
+            bands.computeIfAbsent(b, k -> new ArrayList<>()).add(entry);
+            if (started && Math.abs(b - centreBand) <= window) {
+                entry.activate();
+            }
+        }
+    }
+
+    private void setBandActive(int band, boolean active) {
+        List<Entry> entries = bands.get(band);
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries) {
+            if (active) {
+                entry.activate();
+            } else {
+                entry.deactivate();
+            }
+        }
+    }
+
+    private int bandOf(float y) {
+        return (int) Math.floor(y / bandHeight);
+    }
+
+    //One streamed body: how to build it, and how to save its state when it is parked
+    private abstract class Entry {
+        final float bottom;
+        final float top;
+        Body body;
+        boolean gone = false; //True once collected or vanished
+        boolean parking = false;
+        int activeBands = 0;
+
+        Entry(float bottom, float top) {
+            this.bottom = bottom;
+            this.top = top;
+        }
+
+        abstract Body spawn();
+
+        //Saves any state needed to rebuild the body later
+        void park(Body body) {
+        }
+
+        void destroy(Body body) {
+            body.destroy();
+        }
+
+        void activate() {
+            activeBands++;
+            if (activeBands == 1 && body == null && !gone) {
+                body = spawn();
+                liveBodies++;
+                //If the body is destroyed by the game (collected, vanished) rather than parked, it is gone for good
+                body.addDestructionListener(e -> {
+                    if (!parking) {
+                        gone = true;
+                        body = null;
+                        liveBodies--;
+                    }
+                });
+            }
+        }
+
+        void deactivate() {
+            activeBands--;
+            if (activeBands == 0 && body != null) {
+                park(body);
+                parking = true;
+                destroy(body);
+                parking = false;
+                body = null;
+                liveBodies--;
+            }
+        }
+    }
+}
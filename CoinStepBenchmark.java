@@ -0,0 +1,50 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+/**
+ * Measures the physics step time of a level filled with coins.
+ * Compares the old dynamic-body coins (which fall and rest on platforms) with the sensor coins.
+ * Run with: java game.CoinStepBenchmark [coins]
+ */
+
+public class CoinStepBenchmark {
+    private static final int WARMUP_STEPS = 300;
+    private static final int STEPS = 1200;
+
+    public static void main(String[] args) {
+        int coins = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        System.out.printf("Dynamic coins: %8.1f us/step%n", measure(coins, true));
+        System.out.printf("Sensor coins:  %8.1f us/step%n", measure(coins, false));
+    }
+
+    //Builds a world with rows of platforms and coins resting on them, then times stepping it
+    private static double measure(int coins, boolean dynamic) {
+        GameLevel world = new BlankLevel();
+        int rows = (coins + 19) / 20;
+        for (int row = 0; row < rows; row++) {
+            new Platform(world, 15, 0.5f, 0, row * 3);
+        }
+        CollectibleManager manager = new CollectibleManager(world);
+        for (int i = 0; i < coins; i++) {
+            float x = -14 + (i % 20) * 1.4f;
+            float y = (i / 20) * 3 + 1;
+            if (dynamic) {
+                //The old Collectible: a solid dynamic box
+                DynamicBody coin = new DynamicBody(world, new BoxShape(0.5f, 0.5f));
+                coin.setPosition(new Vec2(x, y));
+            } else {
+                manager.spawnCollectible(x, y);
+            }
+        }
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            world.oneStep();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < STEPS; i++) {
+            world.oneStep();
+        }
+        return (System.nanoTime() - start) / 1000.0 / STEPS;
+    }
+}
@@ -7,29 +7,45 @@ import org.jbox2d.common.Vec2;
  * Represents a collectible item (like a coin) in the game.
  * When the player touches it, they gain points and the collectible plays a sound.
  * Each collectible has its own image and position.
+ * Coins are static bodies with a sensor, so they float where they are placed, never take
+ * part in the contact solver and are picked up as soon as something overlaps them.
  */
 
-public class Collectible extends DynamicBody {
-    private static SoundClip collectSound;  // Sound effect
+public class Collectible extends StaticBody implements ContactRouter.Categorized {
+    private static final String COLLECT_SOUND = "data/collectible2.wav";  // Sound effect, loaded by the AssetManager
 
-    static {
-        try {
-            //Load the sound effect for collecting the item
-            collectSound = new SoundClip("data/collectible2.wav");
-        } catch (Exception e) {
-            //Handle the exception if the sound file is not found
-            System.out.println("Error loading coin sound: " + e);
-        }
-    }
+    //Bookkeeping for the CollectibleManager's slot array and grid
+    int slot = -1;
+    int cellSlot = -1;
+    float indexX;
+    float indexY;
+    CollectibleManager manager;
 
     //Constructor for the collectible object
     public Collectible(World world, float width, float height, float x, float y) {
-        //Call the parent constructor with the world and shape
-        super(world, new BoxShape(width, height));
+        //Call the parent constructor with the world (no solid shape)
+        super(world);
         //Set the position of the collectible
         setPosition(new Vec2(x, y));
+        //Detect pickups by overlap instead of solid contact
+        Sensor sensor = new Sensor(this, new BoxShape(width, height));
+        sensor.addSensorListener(new SensorListener() {
+            @Override
+            public void beginContact(SensorEvent e) {
+                if (manager != null) {
+                    manager.touched(Collectible.this, e.getContactBody());
+                }
+            }
+
+            @Override
+            public void endContact(SensorEvent e) {
+            }
+        });
         //Add an image to the collectible object
-        addImage(new BodyImage("data/collectible.png", 2 * height));
+        addImage(SpriteRegistry.get(SpriteRegistry.COLLECTIBLE, 2 * height));
+        //Only the player can pick it up, so nothing else needs to overlap it
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.COIN);
+        GameLevel.of(world).getDrawList().addSprite(this, SpriteRegistry.COLLECTIBLE, 2 * height);
     }
 
     /*
@@ -37,9 +53,15 @@ public class Collectible extends DynamicBody {
      * When the player collects the item, it plays a sound and destroys itself.
      */
 
+    @Override
+    public int getCategory() {
+        return ContactRouter.COIN;
+    }
+
     // Method to play the sound when collected
     public void playCollectSound() {
         //Play the sound effect when the collectible is collected
+        SoundClip collectSound = AssetManager.getSound(COLLECT_SOUND);
         if (collectSound != null) {
             collectSound.play();
         }
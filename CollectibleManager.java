@@ -1,52 +1,341 @@
 package game;
 
+import city.cs.engine.Body;
 import city.cs.engine.World;
-import org.jbox2d.common.Vec2;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Manages all the collectibles in the level.
  * Can spawn new collectibles and remove them when collected.
- * Keeps track of active collectibles using a list.
+ * Keeps active collectibles in a slot array (removal swaps the last one into the gap) and in a
+ * uniform grid, so nearby coins can be found without looking at every coin in the level.
  */
 
 //class to manage collectibles in the game
 public class CollectibleManager {
+    private static final float CELL_SIZE = 4f; //Width and height of one grid cell
+
     //Fields
     private World world;
-    private List<Collectible> collectibles;
+    private Collectible[] slots = new Collectible[16]; //Active collectibles, packed at the front
+    private int count = 0;
+    private final CellMap grid = new CellMap();
+    private final List<Collectible> view = new SlotList();
+    private PickupListener pickupListener;
+
+    /**
+     * Receives a callback when a body touches one of the collectibles.
+     */
+    public interface PickupListener {
+        /**
+         * Called when a body starts overlapping a collectible.
+         *
+         * @param collectible the collectible that was touched.
+         * @param body        the body touching it.
+         */
+        void touched(Collectible collectible, Body body);
+    }
+
     //Constructor
     public CollectibleManager(World world) {
         this.world = world;
-        this.collectibles = new ArrayList<>();
     }
 
      /*
       * Method to spawn a collectible at a specific position.
-      * Creates a new Collectible object and adds it to the list.
+      * Creates a new Collectible object and adds it to the slot array and the grid.
       * The collectible is positioned at the specified coordinates.
+      * Returns the new collectible.
       */
 
     //Method to spawn a collectible
-    public void spawnCollectible(float x, float y) {
+    public Collectible spawnCollectible(float x, float y) {
         Collectible collectible = new Collectible(world, 0.5f, 0.5f, x, y);
-        collectibles.add(collectible); // Add the collectible to the list
+        add(collectible);
+        return collectible;
     }
+
+    /**
+     * Starts tracking a collectible that has already been created.
+     *
+     * @param collectible the collectible to track.
+     */
+    public void add(Collectible collectible) {
+        if (count == slots.length) {
+            slots = Arrays.copyOf(slots, count * 2);
+        }
+        collectible.slot = count;
+        collectible.manager = this;
+        slots[count++] = collectible;
+        collectible.indexX = collectible.getPosition().x;
+        collectible.indexY = collectible.getPosition().y;
+        grid.cellFor(cellOf(collectible.indexX), cellOf(collectible.indexY), true).add(collectible);
+    }
+
     /*
      * Method to handle the collection of a collectible.
      * When the player collects it, it plays a sound and removes itself from the world.
-     * The collectible is removed from the list of active collectibles.
+     * The collectible is removed from the slot array and the grid in constant time.
      */
     //Method to remove a collectible
     public void removeCollectible(Collectible collectible) {
-        collectibles.remove(collectible);
+        if (collectible.slot < 0) {
+            return; // Already removed (e.g. two contacts in the same step)
+        }
+        //Move the last collectible into the gap
+        int slot = collectible.slot;
+        Collectible last = slots[--count];
+        slots[slot] = last;
+        last.slot = slot;
+        slots[count] = null;
+        collectible.slot = -1;
+
+        grid.cellFor(cellOf(collectible.indexX), cellOf(collectible.indexY), false).remove(collectible);
         collectible.destroy(); // Remove the collectible from the world
     }
 
-    //Method to get the list of collectibles
+    /**
+     * Sets the listener told when a body touches a collectible, e.g. to collect it.
+     *
+     * @param pickupListener the listener, or null for none.
+     */
+    public void setPickupListener(PickupListener pickupListener) {
+        this.pickupListener = pickupListener;
+    }
+
+    //Called by a collectible's sensor
+    void touched(Collectible collectible, Body body) {
+        if (collectible.slot >= 0 && pickupListener != null) {
+            pickupListener.touched(collectible, body);
+        }
+    }
+
+    //Method to get the list of collectibles (read-only view, no copy)
     public List<Collectible> getCollectibles() {
-        return collectibles;
+        return view;
+    }
+
+    /**
+     * Returns the number of active collectibles.
+     *
+     * @return the number of collectibles still in the level.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Finds every collectible within a radius of a point.
+     *
+     * @param x      the x-coordinate of the centre.
+     * @param y      the y-coordinate of the centre.
+     * @param radius the search radius.
+     * @param out    list the results are added to (it is not cleared first).
+     * @return the number of collectibles found.
+     */
+    public int queryRadius(float x, float y, float radius, List<Collectible> out) {
+        int found = 0;
+        float radiusSq = radius * radius;
+        for (int cy = cellOf(y - radius); cy <= cellOf(y + radius); cy++) {
+            for (int cx = cellOf(x - radius); cx <= cellOf(x + radius); cx++) {
+                Cell cell = grid.cellFor(cx, cy, false);
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    Collectible c = cell.items[i];
+                    float dx = c.indexX - x, dy = c.indexY - y;
+                    if (dx * dx + dy * dy <= radiusSq) {
+                        out.add(c);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds every collectible inside an axis-aligned box.
+     *
+     * @param minX the left edge of the box.
+     * @param minY the bottom edge of the box.
+     * @param maxX the right edge of the box.
+     * @param maxY the top edge of the box.
+     * @param out  list the results are added to (it is not cleared first).
+     * @return the number of collectibles found.
+     */
+    public int queryBox(float minX, float minY, float maxX, float maxY, List<Collectible> out) {
+        int found = 0;
+        for (int cy = cellOf(minY); cy <= cellOf(maxY); cy++) {
+            for (int cx = cellOf(minX); cx <= cellOf(maxX); cx++) {
+                Cell cell = grid.cellFor(cx, cy, false);
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    Collectible c = cell.items[i];
+                    if (c.indexX >= minX && c.indexX <= maxX && c.indexY >= minY && c.indexY <= maxY) {
+                        if (out != null) {
+                            out.add(c);
+                        }
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Counts the collectibles inside an axis-aligned box without building a list.
+     *
+     * @param minX the left edge of the box.
+     * @param minY the bottom edge of the box.
+     * @param maxX the right edge of the box.
+     * @param maxY the top edge of the box.
+     * @return the number of collectibles in the box.
+     */
+    public int countInRegion(float minX, float minY, float maxX, float maxY) {
+        return queryBox(minX, minY, maxX, maxY, null);
+    }
+
+    /**
+     * Finds the collectible closest to a point, searching outwards ring by ring.
+     *
+     * @param x           the x-coordinate of the point.
+     * @param y           the y-coordinate of the point.
+     * @param maxDistance the furthest distance to search.
+     * @return the nearest collectible, or null if there is none within maxDistance.
+     */
+    public Collectible nearest(float x, float y, float maxDistance) {
+        Collectible best = null;
+        float bestSq = maxDistance * maxDistance;
+        int centreX = cellOf(x), centreY = cellOf(y);
+        int maxRing = (int) Math.ceil(maxDistance / CELL_SIZE);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            //Anything in this ring is at least (ring - 1) cells away, so stop once that beats the best
+            float ringDistance = Math.max(0, ring - 1) * CELL_SIZE;
+            if (best != null && ringDistance * ringDistance > bestSq) {
+                break;
+            }
+            for (int cy = centreY - ring; cy <= centreY + ring; cy++) {
+                for (int cx = centreX - ring; cx <= centreX + ring; cx++) {
+                    if (Math.abs(cx - centreX) != ring && Math.abs(cy - centreY) != ring) {
+                        continue; //Only the edge of the ring, the inside was searched already
+                    }
+                    Cell cell = grid.cellFor(cx, cy, false);
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size; i++) {
+                        Collectible c = cell.items[i];
+                        float dx = c.indexX - x, dy = c.indexY - y;
+                        float distSq = dx * dx + dy * dy;
+                        if (distSq <= bestSq) {
+                            bestSq = distSq;
+                            best = c;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int cellOf(float v) {
+        return (int) Math.floor(v / CELL_SIZE);
+    }
+
+    //The collectibles in one grid cell, removed by swapping with the last one
+    private static class Cell {
+        Collectible[] items = new Collectible[4];
+        int size;
+
+        void add(Collectible c) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            c.cellSlot = size;
+            items[size++] = c;
+        }
+
+        void remove(Collectible c) {
+            Collectible last = items[--size];
+            items[c.cellSlot] = last;
+            last.cellSlot = c.cellSlot;
+            items[size] = null;
+        }
+    }
+
+    //Open-addressing map from a packed (cellX, cellY) key to its cell, so lookups do not box keys
+    private static class CellMap {
+        private long[] keys = new long[64];
+        private Cell[] cells = new Cell[64];
+        private int size;
+
+        Cell cellFor(int cx, int cy, boolean create) {
+            long key = ((long) cx << 32) | (cy & 0xffffffffL);
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (cells[i] != null) {
+                if (keys[i] == key) {
+                    return cells[i];
+                }
+                i = (i + 1) & mask;
+            }
+            if (!create) {
+                return null;
+            }
+            Cell cell = new Cell();
+            keys[i] = key;
+            cells[i] = cell;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return cell;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Cell[] oldCells = cells;
+            keys = new long[oldKeys.length * 2];
+            cells = new Cell[oldCells.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldCells[j] != null) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (cells[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    cells[i] = oldCells[j];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    //Read-only list view over the slot array
+    private class SlotList extends AbstractList<Collectible> {
+        @Override
+        public Collectible get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return slots[index];
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures CollectibleManager with a large number of coins.
+ * Times removal against the old ArrayList.remove(Object) approach, and the spatial queries
+ * against scanning every coin.
+ * Run with: java game.CollectibleManagerBenchmark [coins]
+ */
+
+public class CollectibleManagerBenchmark {
+    private static final int QUERIES = 100000;
+
+    public static void main(String[] args) {
+        int coins = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Random random = new Random(42);
+        GameLevel world = new BlankLevel();
+        CollectibleManager manager = new CollectibleManager(world);
+        List<Collectible> oldList = new ArrayList<>();
+        for (int i = 0; i < coins; i++) {
+            Collectible c = manager.spawnCollectible(random.nextFloat() * 30 - 15, random.nextFloat() * 1000);
+            oldList.add(c);
+        }
+
+        //Spatial queries
+        List<Collectible> out = new ArrayList<>();
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            out.clear();
+            found += manager.queryRadius(random.nextFloat() * 30 - 15, random.nextFloat() * 1000, 3, out);
+        }
+        report("queryRadius (grid)", start, QUERIES);
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES / 100; i++) {
+            out.clear();
+            float x = random.nextFloat() * 30 - 15, y = random.nextFloat() * 1000;
+            for (Collectible c : oldList) {
+                float dx = c.indexX - x, dy = c.indexY - y;
+                if (dx * dx + dy * dy <= 9) {
+                    out.add(c);
+                }
+            }
+        }
+        report("queryRadius (scan)", start, QUERIES / 100);
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            if (manager.nearest(random.nextFloat() * 30 - 15, random.nextFloat() * 1000, 20) != null) {
+                found++;
+            }
+        }
+        report("nearest", start, QUERIES);
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            float y = random.nextFloat() * 1000;
+            found += manager.countInRegion(-15, y, 15, y + 20);
+        }
+        report("countInRegion", start, QUERIES);
+
+        //Removal: old list.remove(Object) against swap-remove
+        List<Collectible> order = new ArrayList<>(oldList);
+        Collections.shuffle(order, random);
+        start = System.nanoTime();
+        for (Collectible c : order) {
+            oldList.remove(c);
+        }
+        report("ArrayList.remove", start, coins);
+        start = System.nanoTime();
+        for (Collectible c : order) {
+            manager.removeCollectible(c);
+        }
+        report("removeCollectible", start, coins);
+        System.out.println("(found " + found + ")");
+    }
+
+    private static void report(String name, long start, int ops) {
+        System.out.printf("%-20s %10.1f ns/op%n", name, (double) (System.nanoTime() - start) / ops);
+    }
+}
@@ -0,0 +1,67 @@
+package game;
+
+import city.cs.engine.*;
+
+/**
+ * Measures what the collision matrix saves on a crowded level.
+ * Builds Level3 with many extra coins and enemies, once with every pair colliding (as before the
+ * matrix) and once with the standard matrix, and steps each whole world with no window,
+ * reporting the time per step and how many contact pairs JBox2D kept per step.
+ * Run with: java game.CollisionBenchmark [extra bodies]
+ */
+
+public class CollisionBenchmark {
+    private static final int WARMUP_STEPS = 300;
+    private static final int STEPS = 1000;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int extra = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        measure("all pairs", crowd(new Level3() {
+            @Override
+            protected void configureCollisions(CollisionMatrix matrix) {
+                matrix.allowAll();
+            }
+        }, extra));
+        measure("filtered", crowd(new Level3(), extra));
+    }
+
+    //Scatters coins, patrollers and chasing enemies over the level's height
+    private static GameLevel crowd(GameLevel level, int extra) {
+        Shape shape = new BoxShape(0.25f, 0.25f);
+        float top = level.getExitHeight();
+        for (int i = 0; i < extra; i++) {
+            float x = -10 + (i * 7) % 20;
+            float y = -8 + (top + 8) * i / extra;
+            switch (i % 3) {
+                case 0:
+                    new Collectible(level, 0.3f, 0.3f, x, y);
+                    break;
+                case 1:
+                    new PatrollingEnemy(level, shape, x, y, x - 2, x + 2);
+                    break;
+                default:
+                    new Enemy(level, shape, x, y);
+                    break;
+            }
+        }
+        return level;
+    }
+
+    private static void measure(String label, GameLevel level) {
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            level.oneStep();
+        }
+        long contacts = 0;
+        long time = 0;
+        for (int i = 0; i < STEPS; i++) {
+            long start = System.nanoTime();
+            level.oneStep();
+            time += System.nanoTime() - start;
+            contacts += CollisionMatrix.countContacts(level);
+        }
+        String perStep = contacts < 0 ? "n/a" : String.format("%.1f", (double) contacts / STEPS);
+        System.out.printf("%-9s %d bodies: %8.1f us/step, %s contacts/step%n", label,
+                level.getDynamicBodies().size() + level.getStaticBodies().size(), time / 1000.0 / STEPS, perStep);
+    }
+}
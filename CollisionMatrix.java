@@ -0,0 +1,181 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.dynamics.Filter;
+import org.jbox2d.dynamics.Fixture;
+
+/**
+ * Decides which kinds of body in a level can touch each other, using JBox2D's collision filters.
+ * Every kind of body gets a category bit and a mask of the categories it collides with, so pairs
+ * no gameplay rule cares about (enemies and coins, coins and walls, patrollers with each other)
+ * are thrown out by the broadphase before any contact is made.
+ * Bodies of other kinds keep the default filter, which the standard matrix lets touch everything.
+ * The engine does not expose filters, so they are set through PhysicsBridge; if that fails every
+ * body keeps colliding with everything, as before.
+ */
+
+public class CollisionMatrix {
+    //Body groups (each is one category bit)
+    public static final int OTHER = 0;      //JBox2D's default category
+    public static final int PLAYER = 1;
+    public static final int ENEMY = 2;      //The chasing enemy
+    public static final int PATROLLER = 3;
+    public static final int COIN = 4;
+    public static final int PLATFORM = 5;   //Static platforms
+    public static final int MOVING = 6;     //Moving platforms
+    public static final int FRAGILE = 7;    //Disappearing platforms
+    public static final int WALL = 8;       //Platforms taller than they are wide
+    public static final int TRIGGER = 9;    //Exits, checkpoints and other trigger volumes
+    public static final int GROUPS = 10;
+
+    //Fields
+    private final int[] masks = new int[GROUPS];
+
+    /**
+     * Creates a matrix in which nothing collides. Use standard() or allowAll() for a starting point.
+     */
+    public CollisionMatrix() {
+    }
+
+    /**
+     * Sets the pairs the game's rules need: the player touches everything, enemies stand on
+     * every kind of platform and hurt the player, and coins and triggers only notice the player.
+     *
+     * @return this matrix.
+     */
+    public CollisionMatrix standard() {
+        java.util.Arrays.fill(masks, 0);
+        int[] solid = {PLATFORM, MOVING, FRAGILE, WALL};
+        for (int group = 0; group < GROUPS; group++) {
+            allow(PLAYER, group);
+        }
+        for (int ground : solid) {
+            allow(ENEMY, ground);
+            allow(PATROLLER, ground);
+            allow(OTHER, ground);
+        }
+        allow(OTHER, OTHER);
+        allow(OTHER, ENEMY);
+        allow(OTHER, PATROLLER);
+        return this;
+    }
+
+    /**
+     * Lets every group collide with every other, like having no filters at all.
+     *
+     * @return this matrix.
+     */
+    public CollisionMatrix allowAll() {
+        java.util.Arrays.fill(masks, (1 << GROUPS) - 1);
+        return this;
+    }
+
+    /**
+     * Lets two groups collide (both ways).
+     *
+     * @param a the first group.
+     * @param b the second group.
+     * @return this matrix.
+     */
+    public CollisionMatrix allow(int a, int b) {
+        masks[a] |= 1 << b;
+        masks[b] |= 1 << a;
+        return this;
+    }
+
+    /**
+     * Stops two groups colliding (both ways).
+     *
+     * @param a the first group.
+     * @param b the second group.
+     * @return this matrix.
+     */
+    public CollisionMatrix deny(int a, int b) {
+        masks[a] &= ~(1 << b);
+        masks[b] &= ~(1 << a);
+        return this;
+    }
+
+    /**
+     * Checks whether two groups collide.
+     *
+     * @param a the first group.
+     * @param b the second group.
+     * @return true if bodies of the two groups touch.
+     */
+    public boolean collides(int a, int b) {
+        return (masks[a] & (1 << b)) != 0;
+    }
+
+    /**
+     * Sets the filter on every fixture of a body. Call it again whenever the body gets a new fixture.
+     *
+     * @param body  the body.
+     * @param group its group.
+     */
+    public void filter(Body body, int group) {
+        org.jbox2d.dynamics.Body physics = PhysicsBridge.getBody(body);
+        if (physics == null) {
+            return;
+        }
+        for (Fixture fixture = physics.getFixtureList(); fixture != null; fixture = fixture.getNext()) {
+            Filter filter = new Filter();
+            filter.set(fixture.getFilterData());
+            filter.categoryBits = 1 << group;
+            filter.maskBits = masks[group];
+            fixture.setFilterData(filter);
+        }
+    }
+
+    /**
+     * Sets the filters of every body in a level, e.g. after the matrix has been changed.
+     *
+     * @param level the level.
+     */
+    public void apply(GameLevel level) {
+        for (DynamicBody body : level.getDynamicBodies()) {
+            filter(body, body == level.getStudent() ? PLAYER : groupOf(body));
+        }
+        for (StaticBody body : level.getStaticBodies()) {
+            filter(body, groupOf(body));
+        }
+    }
+
+    /**
+     * Works out the group of a body from its class.
+     *
+     * @param body the body.
+     * @return the group, or OTHER.
+     */
+    public static int groupOf(Body body) {
+        if (body instanceof Enemy) {
+            return ENEMY;
+        } else if (body instanceof PatrollingEnemy) {
+            return PATROLLER;
+        } else if (body instanceof Collectible) {
+            return COIN;
+        } else if (body instanceof TriggerVolume) {
+            return TRIGGER;
+        } else if (body instanceof MovingPlatform) {
+            return MOVING;
+        } else if (body instanceof DisappearingPlatform) {
+            return FRAGILE;
+        } else if (body instanceof Platform) {
+            Platform platform = (Platform) body;
+            return platform.getHeight() > platform.getWidth() ? WALL : PLATFORM;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Counts the contacts JBox2D is keeping for a world: pairs whose boxes overlap and whose
+     * filters let them collide. Compare it before and after changing the matrix.
+     *
+     * @param world the world.
+     * @return the number of contacts, or -1 if JBox2D cannot be reached.
+     */
+    public static int countContacts(World world) {
+        org.jbox2d.dynamics.World physics = PhysicsBridge.getWorld(world);
+        return physics == null ? -1 : physics.getContactCount();
+    }
+}
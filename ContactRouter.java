@@ -0,0 +1,297 @@
+package game;
+
+import city.cs.engine.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends each contact in a level to the handlers registered for the two bodies' categories.
+ * Every body has a small category number (PLAYER, ENEMY, PLATFORM ...), and handlers sit in a
+ * table indexed by (category of the reporting body, category of the other body), so a contact
+ * costs one table lookup however many kinds of body there are.
+ *
+ * The engine only reports when a contact begins. The router remembers the contacts it has seen
+ * and, after each step, asks JBox2D which of them are still touching, reporting the ones that
+ * ended. If JBox2D cannot be reached a contact is treated as lasting until the level ends.
+ */
+
+public class ContactRouter implements StepListener {
+    //Body categories
+    public static final int OTHER = 0;    //Anything not listed below
+    public static final int PLAYER = 1;
+    public static final int ENEMY = 2;    //Chasing and patrolling enemies
+    public static final int PLATFORM = 3; //Platforms, walls and moving platforms
+    public static final int FRAGILE = 4;  //Disappearing platforms
+    public static final int COIN = 5;
+    public static final int CATEGORIES = 6;
+
+    /**
+     * Implemented by bodies that know their own category.
+     */
+    public interface Categorized {
+        /**
+         * Gets the body's category.
+         *
+         * @return one of the ContactRouter categories.
+         */
+        int getCategory();
+    }
+
+    /**
+     * Handles contacts between bodies of two categories.
+     */
+    public interface Handler {
+        /**
+         * Called when a contact begins or ends.
+         *
+         * @param self  the body the handler was registered for (of the first category).
+         * @param other the body it touched (of the second category).
+         */
+        void contact(Body self, Body other);
+    }
+
+    //Fields
+    private final Handler[][] begin = new Handler[CATEGORIES][CATEGORIES];
+    private final Handler[][] end = new Handler[CATEGORIES][CATEGORIES];
+    private final Map<Body, Integer> assigned = new IdentityHashMap<>(); //Categories of plain engine bodies, e.g. the player
+    private final Set<Body> tracked = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    //Contacts that have begun and not yet ended
+    private Body[] activeSelf = new Body[16];
+    private Body[] activeOther = new Body[16];
+    private int activeCount = 0;
+
+    /**
+     * Creates an empty router. Levels create their own, so use GameLevel.getContactRouter.
+     */
+    ContactRouter() {
+    }
+
+    /**
+     * Gets the category of a body.
+     *
+     * @param body the body.
+     * @return its category, or OTHER.
+     */
+    public int category(Body body) {
+        if (body instanceof Categorized) {
+            return ((Categorized) body).getCategory();
+        }
+        Integer category = assigned.get(body);
+        return category == null ? OTHER : category;
+    }
+
+    /**
+     * Starts reporting the contacts of a body to the handlers for its category.
+     * Only tracked bodies report contacts; the bodies they touch do not need to be tracked.
+     * Tracking a body again does nothing. A body stops being tracked when it is destroyed, and its
+     * contacts are dropped without being reported as ended.
+     *
+     * @param body     the body.
+     * @param category its category, for bodies that are not Categorized (e.g. the player).
+     */
+    public void track(Body body, int category) {
+        if (!tracked.add(body)) {
+            return;
+        }
+        if (!(body instanceof Categorized)) {
+            assigned.put(body, category);
+        }
+        body.addCollisionListener(e -> begin(body, category, e.getOtherBody()));
+        //Forget the body once it is gone, e.g. a streamed platform whose band is unloaded
+        body.addDestructionListener(e -> {
+            tracked.remove(body);
+            assigned.remove(body);
+            forgetContacts(body);
+        });
+    }
+
+    //Drops the contacts a destroyed body reported, as JBox2D can no longer say when they end
+    private void forgetContacts(Body self) {
+        for (int i = activeCount - 1; i >= 0; i--) {
+            if (activeSelf[i] == self) {
+                activeCount--;
+                activeSelf[i] = activeSelf[activeCount];
+                activeOther[i] = activeOther[activeCount];
+                activeSelf[activeCount] = null;
+                activeOther[activeCount] = null;
+            }
+        }
+    }
+
+    /**
+     * Registers a handler for contacts beginning between two categories.
+     * Adding the same handler again does nothing.
+     *
+     * @param self    the category of the tracked body.
+     * @param other   the category of the body it touches.
+     * @param handler the handler.
+     */
+    public void onBegin(int self, int other, Handler handler) {
+        begin[self][other] = Chain.add(begin[self][other], handler);
+    }
+
+    /**
+     * Registers a handler for contacts ending between two categories.
+     *
+     * @param self    the category of the tracked body.
+     * @param other   the category of the body it touched.
+     * @param handler the handler.
+     */
+    public void onEnd(int self, int other, Handler handler) {
+        end[self][other] = Chain.add(end[self][other], handler);
+    }
+
+    /**
+     * Removes a handler registered with onBegin or onEnd, e.g. when new controls replace old ones.
+     *
+     * @param handler the handler.
+     */
+    public void remove(Handler handler) {
+        for (int a = 0; a < CATEGORIES; a++) {
+            for (int b = 0; b < CATEGORIES; b++) {
+                begin[a][b] = Chain.remove(begin[a][b], handler);
+                end[a][b] = Chain.remove(end[a][b], handler);
+            }
+        }
+    }
+
+    /**
+     * Counts the contacts a tracked body has with bodies of a category right now.
+     *
+     * @param body     the tracked body.
+     * @param category the category of the bodies it touches.
+     * @return the number of contacts.
+     */
+    public int countContacts(Body body, int category) {
+        int count = 0;
+        for (int i = 0; i < activeCount; i++) {
+            if (activeSelf[i] == body && category(activeOther[i]) == category) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void begin(Body self, int selfCategory, Body other) {
+        //Remember the contact once, even if the engine reports it again (e.g. for a second fixture)
+        boolean known = false;
+        for (int i = 0; i < activeCount; i++) {
+            if (activeSelf[i] == self && activeOther[i] == other) {
+                known = true;
+                break;
+            }
+        }
+        if (!known) {
+            if (activeCount == activeSelf.length) {
+                activeSelf = Arrays.copyOf(activeSelf, activeCount * 2);
+                activeOther = Arrays.copyOf(activeOther, activeCount * 2);
+            }
+            activeSelf[activeCount] = self;
+            activeOther[activeCount] = other;
+            activeCount++;
+        }
+        Handler handler = begin[selfCategory][category(other)];
+        if (handler != null) {
+            handler.contact(self, other);
+        }
+    }
+
+    @Override
+    public void preStep(StepEvent stepEvent) {
+    }
+
+    /**
+     * Reports the contacts that ended during the step.
+     *
+     * @param stepEvent the event triggered at each simulation step
+     */
+    @Override
+    public void postStep(StepEvent stepEvent) {
+        for (int i = activeCount - 1; i >= 0; i--) {
+            Body self = activeSelf[i];
+            Body other = activeOther[i];
+            if (touching(self, other)) {
+                continue;
+            }
+            //Swap the last contact into this slot
+            activeCount--;
+            activeSelf[i] = activeSelf[activeCount];
+            activeOther[i] = activeOther[activeCount];
+            activeSelf[activeCount] = null;
+            activeOther[activeCount] = null;
+            Handler handler = end[category(self)][category(other)];
+            if (handler != null) {
+                handler.contact(self, other);
+            }
+        }
+    }
+
+    //Asks JBox2D whether two bodies still touch
+    private static boolean touching(Body self, Body other) {
+        org.jbox2d.dynamics.Body a = PhysicsBridge.getBody(self);
+        if (a == null) {
+            return true; //Cannot tell, so keep the contact
+        }
+        org.jbox2d.dynamics.Body b = PhysicsBridge.getBody(other);
+        for (org.jbox2d.dynamics.contacts.ContactEdge edge = a.getContactList(); edge != null; edge = edge.next) {
+            if (edge.other == b && edge.contact.isTouching()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Several handlers in one table cell
+    private static final class Chain implements Handler {
+        private final Handler[] handlers;
+
+        private Chain(Handler[] handlers) {
+            this.handlers = handlers;
+        }
+
+        @Override
+        public void contact(Body self, Body other) {
+            for (Handler handler : handlers) {
+                handler.contact(self, other);
+            }
+        }
+
+        static Handler add(Handler cell, Handler handler) {
+            if (cell == null) {
+                return handler;
+            }
+            Handler[] current = cell instanceof Chain ? ((Chain) cell).handlers : new Handler[]{cell};
+            for (Handler h : current) {
+                if (h == handler) {
+                    return cell;
+                }
+            }
+            Handler[] handlers = Arrays.copyOf(current, current.length + 1);
+            handlers[current.length] = handler;
+            return new Chain(handlers);
+        }
+
+        static Handler remove(Handler cell, Handler handler) {
+            if (cell == handler) {
+                return null;
+            }
+            if (!(cell instanceof Chain)) {
+                return cell;
+            }
+            Handler[] current = ((Chain) cell).handlers;
+            Handler[] kept = new Handler[current.length];
+            int n = 0;
+            for (Handler h : current) {
+                if (h != handler) {
+                    kept[n++] = h;
+                }
+            }
+            return n == 1 ? kept[0] : n == current.length ? cell : new Chain(Arrays.copyOf(kept, n));
+        }
+    }
+}
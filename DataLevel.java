@@ -0,0 +1,99 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A level loaded from a level file instead of being written in Java.
+ * New levels can be added by writing a text file (and optionally compiling it with LevelCompiler)
+ * without recompiling the game.
+ */
+
+public class DataLevel extends GameLevel {
+    //Fields
+    private final String path;
+    private final String backgroundImage;
+    private final String nextLevel;
+    private final float exitHeight;
+    private final boolean finalLevel;
+
+    private static final float BAND_HEIGHT = 10; //Height of one streamed band
+    private static final int BAND_WINDOW = 2; //Bands kept alive above and below the camera
+
+    /**
+     * Loads a level from a .lvl or .txt level file.
+     *
+     * @param path the level file.
+     * @throws IllegalArgumentException if the file cannot be read.
+     */
+    public DataLevel(String path) {
+        super(false);
+        this.path = path;
+        ByteBuffer buffer;
+        try {
+            buffer = LevelLoader.open(path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error loading level " + path + ": " + e.getMessage(), e);
+        }
+        backgroundImage = LevelLoader.readString(buffer);
+        nextLevel = LevelLoader.readString(buffer);
+        exitHeight = buffer.getFloat();
+        byte flags = buffer.get();
+        finalLevel = (flags & LevelFormat.FLAG_FINAL) != 0;
+        if ((flags & LevelFormat.FLAG_STREAMED) != 0) {
+            chunkManager = new ChunkManager(this, BAND_HEIGHT, BAND_WINDOW);
+        }
+        LevelLoader.populate(buffer, this);
+        populated();
+        if (chunkManager != null) {
+            //Build the bands around the player's start position
+            chunkManager.update(student.getPosition().y);
+        }
+    }
+
+    /**
+     * Not used, the level's bodies are created from the level file in the constructor.
+     */
+    @Override
+    protected void populate() {
+    }
+
+    /**
+     * Gets the file this level was loaded from.
+     *
+     * @return the level file path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return path;
+    }
+
+    @Override
+    public String getBackgroundImage() {
+        return backgroundImage;
+    }
+
+    @Override
+    public float getExitHeight() {
+        return exitHeight;
+    }
+
+    @Override
+    public boolean isFinalLevel() {
+        return finalLevel || nextLevel.isEmpty();
+    }
+
+    /**
+     * Loads the level named by this level's "next" entry.
+     *
+     * @return the next level, or null if this is the final level.
+     */
+    @Override
+    public GameLevel createNextLevel() {
+        return nextLevel.isEmpty() ? null : new DataLevel(nextLevel);
+    }
+}
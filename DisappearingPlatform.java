@@ -6,73 +6,167 @@ import org.jbox2d.common.Vec2;
 /**
  * A special platform that flickers and disappears when the player touches it.
  * Gives the player a chance to jump off before the platform fully vanishes.
- * Adds an extra challenge to the level.
+ * A vanished platform keeps its body (with no fixture or image) so a saved level can bring it back.
+ * The flickering is timed by the level's TimerWheel, so the platform costs nothing on steps
+ * when it does not change, and its timer goes when the platform is destroyed.
  */
 
-public class DisappearingPlatform extends StaticBody implements StepListener {
+public class DisappearingPlatform extends StaticBody implements ContactRouter.Categorized {
     private static final int FLICKER_DURATION = 90;  // Total flicker time
-    private int flickerCounter = -1;
+    private static final int FLICKER_INTERVAL = 10;  // Steps between showing and hiding
+    //Anything moving that lands on the platform starts it flickering
+    private static final ContactRouter.Handler TRIGGER = (self, other) -> ((DisappearingPlatform) self).trigger();
+    private long triggeredAt = -1; //Wheel step the flickering started at, or -1 if untouched
     private boolean visible = true;
+    private boolean gone = false; //True once it has fully disappeared
+    private final TimerWheel timers;
+    private TimerWheel.Timer flicker; //The next show or hide, or null
+    private final Runnable flickerTask = this::flicker;
+    private final float width;
+    private final float height;
+    private NavGraph nav; //Told when the platform goes or comes back, or null
+    private int navNode = -1;
 
     private SolidFixture fixture;
-    private BodyImage platformImage = new BodyImage("data/platform.jpg", 1f);  // Adjust your image path and scale
+    private BodyImage platformImage = SpriteRegistry.get(SpriteRegistry.PLATFORM, 1f);  // Shared with the other disappearing platforms
 
     public DisappearingPlatform(World world, float width, float height, float x, float y) {
         super(world);
+        timers = GameLevel.of(world).getTimerWheel();
+        this.width = width;
+        this.height = height;
         fixture = new SolidFixture(this, new BoxShape(width, height));
         setPosition(new Vec2(x, y));
 
         addImage(platformImage);  // Attach image initially
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.FRAGILE);
+        GameLevel.of(world).getDrawList().addSprite(this, SpriteRegistry.PLATFORM, 1f);
 
-        addCollisionListener(new CollisionListener() {
-            @Override
-            public void collide(CollisionEvent e) {
-                if (e.getOtherBody() instanceof DynamicBody && !(e.getOtherBody() instanceof Collectible)) {
-                    if (flickerCounter == -1) {
-                        flickerCounter = 0;
-                        getWorld().addStepListener(DisappearingPlatform.this);
-                    }
-                }
-            }
-        });
+        ContactRouter router = GameLevel.of(world).getContactRouter();
+        router.track(this, ContactRouter.FRAGILE);
+        router.onBegin(ContactRouter.FRAGILE, ContactRouter.PLAYER, TRIGGER);
+        router.onBegin(ContactRouter.FRAGILE, ContactRouter.ENEMY, TRIGGER);
+        router.onBegin(ContactRouter.FRAGILE, ContactRouter.OTHER, TRIGGER);
     }
 
     /**
-     * Logic that handles the flickering effect and eventual disappearance of the platform.
-     * Runs every game step after the player touches the platform.
-     * @param stepEvent Event triggered on each simulation step.
+     * Starts the platform flickering, unless it already is.
      */
+    void trigger() {
+        if (triggeredAt == -1) {
+            triggeredAt = timers.now();
+            flicker = timers.schedule(this, FLICKER_INTERVAL, flickerTask);
+        }
+    }
 
-    @Override
-    public void preStep(StepEvent stepEvent) {
-        if (flickerCounter >= 0) {
-            flickerCounter++;
-
-            if (flickerCounter % 10 == 0) {  // Flicker every 10 frames
-                if (visible) {
-                    fixture.destroy();             // Disable collision
-                    removeAllImages();             // Remove the image
-                } else {
-                    fixture = new SolidFixture(this, new BoxShape(1.5f, 0.25f));  // Re-add collision
-                    addImage(platformImage);      // Re-add image
-                }
-                visible = !visible;
-            }
-
-            if (flickerCounter >= FLICKER_DURATION) {
-                destroy();  // Fully disappear
-            }
+    /**
+     * Returns how many steps the platform has been flickering for.
+     * @return the step count (at most the flicker duration), or -1 if it has not been touched.
+     */
+    public int getFlickerCounter() {
+        if (triggeredAt == -1) {
+            return -1;
         }
+        return (int) Math.min(timers.now() - triggeredAt, FLICKER_DURATION);
+    }
+
+    /**
+     * Links the platform to its node in the level's navigation graph.
+     * @param nav  the graph.
+     * @param node the platform's node.
+     */
+    void setNavNode(NavGraph nav, int node) {
+        this.nav = nav;
+        this.navNode = node;
+    }
+
+    /**
+     * Gets half the platform's width.
+     * @return the half width.
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets half the platform's height.
+     * @return the half height.
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks whether the platform has fully disappeared.
+     * @return true once the flickering has finished.
+     */
+    public boolean isGone() {
+        return gone;
     }
 
     /**
-     * Logic that handles the flickering effect and eventual disappearance of the platform.
-     * Runs every game step after the player touches the platform.
-     * @param stepEvent Event triggered on each simulation step.
+     * Puts the platform back into a saved state, e.g. when a LevelSnapshot is restored.
+     * @param flickerCounter the saved flicker count (-1 if untouched).
+     * @param gone           whether it had fully disappeared.
      */
+    void restore(int flickerCounter, boolean gone) {
+        triggeredAt = flickerCounter < 0 ? -1 : timers.now() - flickerCounter;
+        this.gone = gone;
+        if (nav != null) {
+            nav.setEnabled(navNode, !gone);
+        }
+        setVisible(!gone && (flickerCounter < 0 || (flickerCounter / FLICKER_INTERVAL) % 2 == 0));
+        timers.cancel(flicker);
+        flicker = null;
+        if (flickerCounter >= 0 && !gone) {
+            //Carry on from the next show or hide
+            flicker = timers.schedule(this, FLICKER_INTERVAL - flickerCounter % FLICKER_INTERVAL, flickerTask);
+        }
+    }
+
+    //Adds or removes the fixture and image together
+    private void setVisible(boolean show) {
+        if (show == visible) {
+            return;
+        }
+        if (show) {
+            fixture = new SolidFixture(this, new BoxShape(width, height));  // Re-add collision
+            GameLevel.of(getWorld()).getCollisionMatrix().filter(this, CollisionMatrix.FRAGILE); // New fixtures get the default filter
+            addImage(platformImage);      // Re-add image
+        } else {
+            fixture.destroy();             // Disable collision
+            removeAllImages();             // Remove the image
+        }
+        GameLevel.of(getWorld()).getDrawList().setShown(this, show);
+        visible = show;
+    }
 
     @Override
-    public void postStep(StepEvent stepEvent) {
-        // No post-step logic needed
+    public int getCategory() {
+        return ContactRouter.FRAGILE;
+    }
+
+    /**
+     * Checks whether the player has touched the platform and it has started flickering.
+     * @return true once the platform is on its way to disappearing.
+     */
+    public boolean isTriggered() {
+        return triggeredAt != -1;
+    }
+
+    //Shows or hides the platform every few steps, then makes it disappear
+    private void flicker() {
+        flicker = null;
+        setVisible(!visible);
+        if (getFlickerCounter() >= FLICKER_DURATION) {
+            //Fully disappear, but keep the body so it can be restored
+            setVisible(false);
+            gone = true;
+            if (nav != null) {
+                nav.setEnabled(navNode, false);
+            }
+            return;
+        }
+        flicker = timers.schedule(this, FLICKER_INTERVAL, flickerTask);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * The bodies of a level that are drawn, what each one is drawn with, and where it was after the
+ * last two steps, kept in flat arrays.
+ * Each level has one, which its bodies join when they are created and leave when they are destroyed.
+ * Every GameState holds a copy without the bodies, so in fixed-step mode a frame can be drawn
+ * between two steps while the next step is already moving the bodies themselves.
+ */
+
+public class DrawList {
+    //Fields
+    private Body[] bodies = new Body[64]; //Only set in a level's own list, not in copies
+    private String[] sprites = new String[64]; //Sprite file, or null to draw a box
+    private Color[] colours = new Color[64]; //Fill colour of a box
+    private float[] halfWidths = new float[64]; //Half size of a box (unused for sprites)
+    private float[] heights = new float[64]; //Height of a sprite, or half height of a box
+    private boolean[] shown = new boolean[64];
+    private boolean[] fresh = new boolean[64]; //Not moved on a step yet, so has no previous position
+    private float[] x = new float[64], y = new float[64], angle = new float[64];
+    private float[] previousX = new float[64], previousY = new float[64], previousAngle = new float[64];
+    private int count = 0;
+
+    /**
+     * Creates an empty list. Levels create their own, so use GameLevel.getDrawList.
+     */
+    DrawList() {
+    }
+
+    /**
+     * Draws a body with a sprite, centred on the body and turning with it, like a BodyImage.
+     *
+     * @param body   the body.
+     * @param path   the sprite file, e.g. SpriteRegistry.ENEMY.
+     * @param height the height of the sprite in world units.
+     */
+    public void addSprite(Body body, String path, float height) {
+        add(body, path, null, 0, height);
+    }
+
+    /**
+     * Draws a body as a box filled with the body's fill colour, e.g. a plain platform.
+     *
+     * @param body       the body.
+     * @param halfWidth  half the width of the box.
+     * @param halfHeight half the height of the box.
+     */
+    public void addBox(Body body, float halfWidth, float halfHeight) {
+        add(body, null, body.getFillColor(), halfWidth, halfHeight);
+    }
+
+    private void add(Body body, String sprite, Color colour, float halfWidth, float height) {
+        ensureCapacity(count + 1);
+        bodies[count] = body;
+        sprites[count] = sprite;
+        colours[count] = colour;
+        halfWidths[count] = halfWidth;
+        heights[count] = height;
+        shown[count] = true;
+        fresh[count] = true;
+        count++;
+        body.addDestructionListener(e -> remove(body));
+    }
+
+    //Swaps the last body into the removed body's place
+    private void remove(Body body) {
+        int i = indexOf(body);
+        if (i < 0) {
+            return;
+        }
+        count--;
+        bodies[i] = bodies[count];
+        sprites[i] = sprites[count];
+        colours[i] = colours[count];
+        halfWidths[i] = halfWidths[count];
+        heights[i] = heights[count];
+        shown[i] = shown[count];
+        fresh[i] = fresh[count];
+        x[i] = x[count];
+        y[i] = y[count];
+        angle[i] = angle[count];
+        previousX[i] = previousX[count];
+        previousY[i] = previousY[count];
+        previousAngle[i] = previousAngle[count];
+        bodies[count] = null;
+        sprites[count] = null;
+        colours[count] = null;
+    }
+
+    private int indexOf(Body body) {
+        for (int i = 0; i < count; i++) {
+            if (bodies[i] == body) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Shows or hides a body without taking it out of the list, e.g. a flickering platform.
+     *
+     * @param body the body.
+     * @param show true to draw it.
+     */
+    public void setShown(Body body, boolean show) {
+        int i = indexOf(body);
+        if (i >= 0) {
+            shown[i] = show;
+        }
+    }
+
+    /**
+     * Returns the number of bodies in the list, shown or not.
+     *
+     * @return the number of bodies.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Reads where every body is after a step, keeping where it was after the step before.
+     * Called only on the thread that steps the level.
+     */
+    void advance() {
+        for (int i = 0; i < count; i++) {
+            Vec2 position = bodies[i].getPosition();
+            float turned = bodies[i].getAngle();
+            if (fresh[i]) {
+                //Nothing to draw between yet
+                fresh[i] = false;
+                previousX[i] = position.x;
+                previousY[i] = position.y;
+                previousAngle[i] = turned;
+            } else {
+                previousX[i] = x[i];
+                previousY[i] = y[i];
+                previousAngle[i] = angle[i];
+            }
+            x[i] = position.x;
+            y[i] = position.y;
+            angle[i] = turned;
+        }
+    }
+
+    /**
+     * Makes this list a copy of another, leaving out the bodies so the copy can be drawn on
+     * another thread. Reuses this list's arrays, so once they are big enough it creates no garbage.
+     *
+     * @param other the list to copy.
+     */
+    void copyFrom(DrawList other) {
+        ensureCapacity(other.count);
+        int n = other.count;
+        System.arraycopy(other.sprites, 0, sprites, 0, n);
+        System.arraycopy(other.colours, 0, colours, 0, n);
+        System.arraycopy(other.halfWidths, 0, halfWidths, 0, n);
+        System.arraycopy(other.heights, 0, heights, 0, n);
+        System.arraycopy(other.shown, 0, shown, 0, n);
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.angle, 0, angle, 0, n);
+        System.arraycopy(other.previousX, 0, previousX, 0, n);
+        System.arraycopy(other.previousY, 0, previousY, 0, n);
+        System.arraycopy(other.previousAngle, 0, previousAngle, 0, n);
+        count = n;
+    }
+
+    /**
+     * Draws every shown body part of the way from where it was after the step before to where it
+     * is now. The view is centred on (centreX, centreY), with y pointing up as in the world.
+     *
+     * @param g       the Graphics2D object used to draw.
+     * @param alpha   how far between the two steps to draw (0 to 1).
+     * @param centreX the world x at the middle of the view.
+     * @param centreY the world y at the middle of the view.
+     * @param zoom    pixels per world unit.
+     * @param width   the width of the view in pixels.
+     * @param height  the height of the view in pixels.
+     */
+    public void draw(Graphics2D g, float alpha, float centreX, float centreY, float zoom, int width, int height) {
+        AffineTransform saved = g.getTransform();
+        for (int i = 0; i < count; i++) {
+            if (!shown[i]) {
+                continue;
+            }
+            float bx = previousX[i] + (x[i] - previousX[i]) * alpha;
+            float by = previousY[i] + (y[i] - previousY[i]) * alpha;
+            float turned = previousAngle[i] + (angle[i] - previousAngle[i]) * alpha;
+            g.translate(width / 2.0 + (bx - centreX) * zoom, height / 2.0 - (by - centreY) * zoom);
+            g.rotate(-turned); //The world's y points up, the screen's down
+            if (sprites[i] != null) {
+                Image image = BackgroundCache.loadImage(sprites[i]);
+                float h = heights[i] * zoom;
+                float w = h * image.getWidth(null) / Math.max(1, image.getHeight(null));
+                g.drawImage(image, Math.round(-w / 2), Math.round(-h / 2), Math.round(w), Math.round(h), null);
+            } else {
+                float w = halfWidths[i] * zoom;
+                float h = heights[i] * zoom;
+                g.setColor(colours[i]);
+                g.fillRect(Math.round(-w), Math.round(-h), Math.round(2 * w), Math.round(2 * h));
+            }
+            g.setTransform(saved);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= bodies.length) {
+            return;
+        }
+        int size = Math.max(needed, bodies.length * 2);
+        bodies = Arrays.copyOf(bodies, size);
+        sprites = Arrays.copyOf(sprites, size);
+        colours = Arrays.copyOf(colours, size);
+        halfWidths = Arrays.copyOf(halfWidths, size);
+        heights = Arrays.copyOf(heights, size);
+        shown = Arrays.copyOf(shown, size);
+        fresh = Arrays.copyOf(fresh, size);
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        angle = Arrays.copyOf(angle, size);
+        previousX = Arrays.copyOf(previousX, size);
+        previousY = Arrays.copyOf(previousY, size);
+        previousAngle = Arrays.copyOf(previousAngle, size);
+    }
+}
@@ -4,15 +4,21 @@ import city.cs.engine.*;
 import org.jbox2d.common.Vec2;
 
 /**
- * Basic enemy that follows the player horizontally.
- * Moves left or right depending on where the player is.
- * Doesn't jump or fly—just simple ground chasing.
+ * Enemy that chases the player across the level's platforms.
+ * When its level's MovementSystem says so, it follows the level's NavGraph: it runs to where
+ * the next jump or drop starts, then jumps or walks off towards the platform the player is on.
+ * On the player's platform, or with no graph (e.g. streamed levels), it just follows horizontally.
  */
 
 //Enemy class to represent the enemy object
-public class Enemy extends DynamicBody {
+public class Enemy extends DynamicBody implements ContactRouter.Categorized {
     // Speed of the enemy
-    private static final float SPEED = 7.5f;
+    static final float SPEED = 7.5f;
+    private static final float ARRIVED = 0.3f; //How close to a take-off point counts as being there
+    private static final float STILL = 0.5f; //Vertical speed below which the enemy is not already jumping or falling
+    int moverIndex = -1; //Index in the MovementSystem's chaser arrays
+    private final Vec2 velocity = new Vec2(); //Reused every step
+    private int platform = -1; //Navigation node the enemy was last standing on
 
     // Constructor for the enemy object
     public Enemy(World world, Shape shape, float x, float y) {
@@ -24,7 +30,9 @@ public class Enemy extends DynamicBody {
 
 
         // Add an image to the enemy object (scale the image to fit)
-        addImage(new BodyImage("data/enemy-new.png", 0.5f)); // Scale the image to fit 5x5 pixels
+        addImage(SpriteRegistry.get(SpriteRegistry.ENEMY, 0.5f)); // Shared image, scaled to fit
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.ENEMY);
+        GameLevel.of(world).getDrawList().addSprite(this, SpriteRegistry.ENEMY, 0.5f);
 
 
     }
@@ -34,13 +42,64 @@ public class Enemy extends DynamicBody {
      * @param playerPosition The current position of the player.
      **/
     public void followPlayer(Vec2 playerPosition) {
-        Vec2 enemyPosition = getPosition();
-        Vec2 direction = new Vec2(playerPosition.x - enemyPosition.x, 0); // Still only horizontal following
-        direction.normalize();
+        float dx = playerPosition.x - getPosition().x; // Still only horizontal following
+        float direction = Math.signum(dx);
 
         float currentY = getLinearVelocity().y; // Keep current vertical velocity
-        Vec2 newVelocity = new Vec2(direction.x * SPEED, currentY);
-        setLinearVelocity(newVelocity); // Apply new horizontal, keep vertical
+        setLinearVelocity(velocity.set(direction * SPEED, currentY)); // Apply new horizontal, keep vertical
+    }
+
+    /**
+     * Chases a body across platforms, following the level's navigation graph.
+     * Runs to where the next jump or drop starts, then jumps or walks off towards the next platform.
+     * Falls back to following horizontally when both are on the same platform or there is no way across.
+     * @param target the body to chase.
+     * @param graph  the level's navigation graph, or null to only follow horizontally.
+     */
+    public void chase(Body target, NavGraph graph) {
+        Vec2 targetPosition = target.getPosition();
+        if (graph == null) {
+            followPlayer(targetPosition);
+            return;
+        }
+        Vec2 position = getPosition();
+        int from = graph.standingOn(position.x, position.y, platform);
+        if (from < 0) {
+            return; //In the air, so keep going the way it jumped
+        }
+        platform = from;
+        int to = graph.below(targetPosition.x, targetPosition.y);
+        int edge = to < 0 ? -1 : graph.nextEdge(from, to);
+        if (edge < 0) {
+            followPlayer(targetPosition);
+            return;
+        }
+
+        float currentY = getLinearVelocity().y;
+        float toTakeoff = graph.getTakeoffX(edge) - position.x;
+        if (Math.abs(toTakeoff) > ARRIVED) {
+            setLinearVelocity(velocity.set(Math.signum(toTakeoff) * SPEED, currentY));
+            return;
+        }
+        //At the edge: head for the landing point, jumping if the edge needs it
+        setLinearVelocity(velocity.set(Math.signum(graph.getLandingX(edge) - position.x) * SPEED, currentY));
+        if (graph.getKind(edge) == NavGraph.JUMP && Math.abs(currentY) < STILL) {
+            applyImpulse(velocity.set(0, PlayerControls.JUMP_IMPULSE));
+        }
+    }
+
+    @Override
+    public int getCategory() {
+        return ContactRouter.ENEMY;
+    }
+
+    /**
+     * Removes the enemy from the world and stops it chasing.
+     */
+    @Override
+    public void destroy() {
+        GameLevel.of(getWorld()).getMovementSystem().removeChaser(this);
+        super.destroy();
     }
 
 }
\ No newline at end of file
@@ -4,7 +4,17 @@ import city.cs.engine.*;
 import javax.swing.*;
 import java.awt.*;
 import org.jbox2d.common.Vec2;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
 
 /**
  * Main game class that handles level transitions, camera, player health, scoring, and game over logic.
@@ -18,76 +28,228 @@ public class Game {
     private UserView view;
     private Camera camera;
     private Healthbar healthBar;
-    private int playerHealth = 100;
-    private int score = 0;
-    //SoundClip collectSound;
-    private static SoundClip hurtSound;
+    private BackgroundCache backgroundCache;
+    private HudLayer hud;
+    private final LevelPrefetcher prefetcher = new LevelPrefetcher(PREFETCH_MARGIN);
+    private final Supplier<GameLevel> firstLevel; //Creates the level the game starts (and restarts) on
+    private GameLoop loop; //Steps the physics on its own thread, or null to use the world's timer
+    private PlayerControls controls;
+    private final GameRules rules = new GameRules(new GameRules.Listener() {
+        @Override
+        public void hurt() {
+            //Shared clip loaded by the AssetManager
+            SoundClip hurtSound = AssetManager.getSound(HURT_SOUND);
+            if (hurtSound != null) {
+                hurtSound.play();
+            }
+        }
 
-    private boolean gameWon = false;
+        @Override
+        public void collected(Collectible coin) {
+            coin.playCollectSound();  // ✅ Play the sound!
+        }
 
+        @Override
+        public void died() {
+            finishRecording(currentLevel);
+            showGameOver();
+        }
 
-    static {
-        //Load the hurt sound
-        try {
-            hurtSound = new SoundClip("data/hurt.wav");  // Adjust the filename to match your sound
-        } catch (Exception e) {
-            System.out.println("Error loading hurt sound: " + e);
+        @Override
+        public void won() {
+            finishRecording(currentLevel);
+            System.out.println("Player has won the game!");
         }
-    }
+
+        @Override
+        public void reachedExit(GameLevel level) {
+            if (level == currentLevel) {
+                finishRecording(level);
+                //Swap in the prefetched level
+                switchToLevel(prefetcher.take(level));
+            }
+        }
+    });
+    //SoundClip collectSound;
+    private static final String HURT_SOUND = "data/hurt.wav";
+    private static final float PREFETCH_MARGIN = 10; //Start building the next level this far below the exit
+
+    private final GameStateBuffer states = new GameStateBuffer(); //What the painting code reads
+    private long steps = 0;
+    private GameLevel publishedLevel; //Level and player height in the last state published
+    private float publishedY;
+
+    //Saving and restoring
+    private static final Path QUICKSAVE = Paths.get("saves", "quicksave.snp");
+    private final Set<GameLevel> wired = Collections.newSetFromMap(new WeakHashMap<>()); //Levels that already have our listeners
+    private GameLevel restartLevel; //The first level, kept so restarting can restore it instead of rebuilding it
+    private LevelSnapshot restartSnapshot;
+    private LevelSnapshot checkpoint;
+    private volatile boolean saveRequested = false;
+    private volatile boolean loadRequested = false;
+
+    //Rewinding time while Q is held
+    private static final int REWIND_FRAMES = 600; //Ten seconds at 60 steps per second
+    private static final int REWIND_BODIES = 512; //About 6 MB of records in total
+    private static final int REWIND_SPEED = 2; //Frames rewound per step
+    private final RewindBuffer rewind = new RewindBuffer(REWIND_FRAMES, REWIND_BODIES);
+    private volatile boolean rewindHeld = false;
+
+    //Input recordings, written when a level ends so runs can be replayed with ReplayDriver (only with --record)
+    private static final Path REPLAYS = Paths.get("replays");
+    private static final long REPLAY_SEED = 0; //Nothing in the game is random yet
+    private final boolean recordReplays;
+    private InputRecorder recorder;
+
+    private final KeyListener gameKeys = new KeyAdapter() {
+        @Override
+        public void keyPressed(KeyEvent e) {
+            //Handled during the next step, not on the event thread
+            if (e.getKeyCode() == KeyEvent.VK_F5) {
+                saveRequested = true;
+            } else if (e.getKeyCode() == KeyEvent.VK_F9) {
+                loadRequested = true;
+            } else if (e.getKeyCode() == KeyEvent.VK_Q) {
+                rewindHeld = true;
+            }
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            if (e.getKeyCode() == KeyEvent.VK_Q) {
+                rewindHeld = false;
+            }
+        }
+    };
+
     /**
      * Returns the current score of the player.
      * @return the current score.
      */
     public int getScore() {
-        return score;
+        return rules.getScore();
+    }
+
+    /**
+     * Returns the state of the game after the latest step, for painting.
+     * Must only be called from the Swing event thread.
+     * @return the latest state, which does not change until this is called again.
+     */
+    public GameState getState() {
+        return states.read();
+    }
+
+    /**
+     * Constructor for the Game class.
+     * Starts the game on Level 1.
+     */
+    public Game() {
+        this(Level1::new);
     }
 
     /**
      * Constructor for the Game class.
      * Initialises the game by creating the first level, setting up the view, and adding controls.
      * Sets up the camera to follow the player and handles level transitions.
+     * @param firstLevel creates the level to start on, e.g. a DataLevel loaded from a file.
      */
-    public Game() {
-        currentLevel = new Level1();
-        currentLevel.start();
+    public Game(Supplier<GameLevel> firstLevel) {
+        this(firstLevel, false);
+    }
+
+    /**
+     * Constructor for the Game class.
+     * @param firstLevel creates the level to start on, e.g. a DataLevel loaded from a file.
+     * @param fixedStep  true to step the physics at a fixed rate on its own thread and draw
+     *                   interpolated frames at the display's refresh rate.
+     */
+    public Game(Supplier<GameLevel> firstLevel, boolean fixedStep) {
+        this(firstLevel, fixedStep, false);
+    }
+
+    /**
+     * Constructor for the Game class.
+     * @param firstLevel    creates the level to start on, e.g. a DataLevel loaded from a file.
+     * @param fixedStep     true to step the physics at a fixed rate on its own thread.
+     * @param recordReplays true to write a replay file to the replays folder whenever a level ends.
+     */
+    public Game(Supplier<GameLevel> firstLevel, boolean fixedStep, boolean recordReplays) {
+        this.firstLevel = firstLevel;
+        this.recordReplays = recordReplays;
+        long start = System.nanoTime();
+        currentLevel = firstLevel.get();
+        PerfStats.record("startup.level", System.nanoTime() - start);
+        start = System.nanoTime();
 
         DynamicBody student = currentLevel.getStudent();
         //Create the view
         view = new UserView(currentLevel, 800, 600) {
+            //In fixed-step mode, draw the latest state with every body between its last two positions
+            @Override
+            public void paint(Graphics g) {
+                if (loop == null) {
+                    super.paint(g);
+                    return;
+                }
+                GameState state = states.read();
+                if (state.getStep() == 0) {
+                    return; //Nothing published until the first step
+                }
+                loop.paintInterpolated(state.getTime(), alpha -> paintState((Graphics2D) g, state, (float) alpha));
+            }
+
+            //Draws a state without touching the world, which the next step may already be changing
+            private void paintState(Graphics2D g, GameState state, float alpha) {
+                //The background is built here, on the event thread, as the step that changed level cannot draw
+                backgroundCache.prepare(state.getBackground(), getWidth(), getHeight());
+                backgroundCache.draw(g, getWidth(), getHeight());
+                //Keep the camera on the player where it is drawn (x never changes)
+                float previousY = state.getPreviousPlayerY();
+                float centreY = previousY + (state.getPlayerY() - previousY) * alpha + camera.getOffsetY();
+                state.getBodies().draw(g, alpha, getCentre().x, centreY, getZoom(), getWidth(), getHeight());
+                paintHud(g, state);
+            }
+
             //Override the paint method to draw the background and foreground
             @Override
 
             protected void paintBackground(Graphics2D g) {
-                //Draw the background image
-                Image background = new ImageIcon(currentLevel.getBackgroundImage()).getImage();
-
-                g.drawImage(background, 0, 0, getWidth(), getHeight(), this);
+                //Draw the cached, pre-scaled background image
+                if (backgroundCache != null) {
+                    backgroundCache.draw(g, getWidth(), getHeight());
+                }
             }
             //Override the paint method to draw the foreground
             @Override
 
             //Method to draw the foreground
             protected void paintForeground(Graphics2D g) {
-                //Draw the health bar
-                healthBar.draw(g, 300, 20);
-                //Draw the score
-                g.setColor(Color.cyan);
-                g.setFont(new Font("Times New Roman", Font.PLAIN, 18));
-                g.drawString("Score: " + score, 10, 40);
-
-                //Draw the game win message
-                if (gameWon) {
-                    g.setFont(new Font("Times New Roman", Font.BOLD, 40));
-                    g.setColor(Color.GREEN);
-                    g.drawString("YOU WIN!", 300, 300);
-
+                paintHud(g, states.read());
+            }
 
-                    }
+            //Draws the health bar, score and win message from the cached HUD
+            private void paintHud(Graphics2D g, GameState state) {
+                long allocated = PerfStats.threadAllocatedBytes();
+                if (state.getStep() == 0) {
+                    return; //Nothing published until the first step
+                }
+                healthBar.setHealth(state.getHealth());
+                hud.setScore(state.getScore());
+                hud.setWon(state.isWon());
+                hud.draw(g);
+                if (allocated >= 0) {
+                    PerfStats.recordBytes("paint.hud", PerfStats.threadAllocatedBytes() - allocated);
+                }
             }
         };
 
+        //Decode and scale the first background once, up front
+        backgroundCache = new BackgroundCache(view);
+        backgroundCache.prepare(currentLevel.getBackgroundImage(), 800, 600);
+
         //set the health bar properties
         healthBar = new Healthbar(100, 200, 20, Color.GREEN);
+        hud = new HudLayer(healthBar);
 
         //camera follows user
         camera = new Camera(view, student, 0);
@@ -105,10 +267,20 @@ public class Game {
         view.setFocusable(true);
         view.requestFocus();
 
-        PlayerControls controls = new PlayerControls(student);
-        view.addKeyListener(controls);
-
+        if (fixedStep) {
+            loop = new GameLoop(view);
+        }
         setupLevel(currentLevel);
+        //Remember the starting state so restarting does not have to rebuild the level
+        if (currentLevel.getChunkManager() == null) {
+            restartLevel = currentLevel;
+            restartSnapshot = LevelSnapshot.capture(currentLevel, rules.getScore(), rules.getHealth());
+        }
+        startLevel(currentLevel);
+        if (loop != null) {
+            loop.start();
+        }
+        PerfStats.record("startup.view", System.nanoTime() - start);
     }
 
 
@@ -117,18 +289,25 @@ public class Game {
 
         //Set the world for the view
         DynamicBody student = level.getStudent();
-        Enemy enemy = level.getEnemy();
+
+        //Build the background for this level now rather than on the first repaint
+        //(in fixed-step mode the painting code builds it, as this can run on the simulation thread)
+        if (loop == null) {
+            backgroundCache.prepare(level.getBackgroundImage(), view.getWidth(), view.getHeight());
+        }
 
         //Set the camera to follow the player
         camera = new Camera(view, student, 0);
 
 
-        //Remove any existing key listeners and add the new one
-        for (KeyListener kl : view.getKeyListeners()) {
-            view.removeKeyListener(kl);
-        }
-        view.addKeyListener(new PlayerControls(student));
+        setControls(student);
+        startRewindRecording(level);
+        startReplayRecording(level);
 
+        //Listeners stay on a level, so a restored level only needs the camera and controls again
+        if (!wired.add(level)) {
+            return;
+        }
 
         level.addStepListener(new StepListener() {
 
@@ -136,80 +315,50 @@ public class Game {
 
         //Method to update the camera and check for level transitions
             public void preStep(StepEvent stepEvent) {
-                camera.update();
-                Vec2 pos = student.getPosition();
-
-
-                student.setAngularVelocity(0);
-
-                float playerY = pos.y;
-
-                //Check for level transitions
-                if (playerY > 25 && currentLevel instanceof Level1) {
-                    //Switch to Level 2
-                    switchToLevel(new Level2());
-                    currentLevel.start();
-
-                //Check for level transitions
-                } else if (playerY > 35 && currentLevel instanceof Level2) {
-                    switchToLevel(new Level3()); // Add your Level3 logic
-                    currentLevel.start();
+                //Quick save and load, asked for with F5 and F9
+                if (saveRequested) {
+                    saveRequested = false;
+                    saveCheckpoint(level);
                 }
-
-                //Pauses the game once won
-                if (gameWon) {
-                    currentLevel.stop();
-                    return;
+                if (loadRequested) {
+                    loadRequested = false;
+                    loadCheckpoint(level);
                 }
-
-                //Check for win condition
-                if (playerY > 69 && currentLevel instanceof Level3 && !gameWon) {
-                    gameWon = true;  // ✅ Trigger the win condition
-                    System.out.println("Player has won the game!");
+                camera.update();
+                //Stream tall levels in and out around the camera
+                if (level.getChunkManager() != null) {
+                    level.getChunkManager().update(view.getCentre().y);
                 }
+                //Start building the next level in the background as the player nears the exit
+                prefetcher.update(level, student.getPosition().y);
 
-                //Make the enemy follow the player
-                if (enemy != null) {
-                    enemy.followPlayer(student.getPosition());
+                //Pauses the game once won
+                if (rules.isWon()) {
+                    stopLevel(currentLevel);
                 }
             }
 
             @Override
-            public void postStep(StepEvent stepEvent) {}
-        });
-
-        student.addCollisionListener(new CollisionListener() {
-            @Override
-            public void collide(CollisionEvent e) {
-                if (e.getOtherBody() instanceof Enemy || e.getOtherBody() instanceof PatrollingEnemy) {
-                    playerHealth -= 25;
-                    healthBar.setHealth(playerHealth);
-
-                    if (hurtSound != null) {
-                        hurtSound.play();
-                    }
-
-                    Vec2 currentVel = student.getLinearVelocity();
-                    student.setLinearVelocity(new Vec2(currentVel.x, currentVel.y + 2));
-
-                    if (playerHealth <= 0) {
-                        showGameOver();
-                    }
+            public void postStep(StepEvent stepEvent) {
+                steps++;
+                if (level != currentLevel) {
+                    return;
                 }
-            }
-        });
-
-        student.addCollisionListener(new CollisionListener() {
-            @Override
-            public void collide(CollisionEvent e) {
-                if (e.getOtherBody() instanceof Collectible) {
-                    Collectible coin = (Collectible) e.getOtherBody();
-                    score += 10;
-                    coin.playCollectSound();  // ✅ Play the sound!
-                    level.getCollectibleManager().removeCollectible((Collectible) e.getOtherBody());
+                //Either go back in time or remember this step for later
+                if (rewindHeld && rewind.rewind(REWIND_SPEED)) {
+                    discardRecording(); //Input alone can no longer reproduce this run
+                    rules.setScore(rewind.getScore());
+                    rules.setHealth(rewind.getHealth());
+                } else {
+                    rewind.record(rules.getScore(), rules.getHealth());
                 }
+                //Hand the state after this step to the painting code
+                publishState();
             }
         });
+
+        //Scoring, damage, the chasing enemy, the exit and the win
+        rules.attach(level);
     }
 
 
@@ -219,53 +368,208 @@ public class Game {
      * @param newLevel the new level to switch to.
      */
     private void switchToLevel(GameLevel newLevel) {
-        currentLevel.stop();
+        long start = System.nanoTime();
+        stopLevel(currentLevel);
         currentLevel = newLevel;
-        currentLevel.start();
+        startLevel(currentLevel);
 
         view.setWorld(currentLevel);
         setupLevel(currentLevel);
         view.repaint();
+        PerfStats.record("level.transition", System.nanoTime() - start);
     }
 
     // ✅ Game Over Screen logic
     public void showGameOver() {
-        currentLevel.stop();
-        new GameOverView(currentLevel, this);
+        stopLevel(currentLevel);
+        //Collisions are handled on the simulation thread in fixed-step mode, so open the window on the EDT
+        if (SwingUtilities.isEventDispatchThread()) {
+            new GameOverView(currentLevel, this);
+        } else {
+            SwingUtilities.invokeLater(() -> new GameOverView(currentLevel, this));
+        }
     }
 
     /**
-     * Restarts the game back to Level 1.
+     * Restarts the game back to the first level.
      * Resets the score, health bar, camera, and controls.
      */
     public void restartGame() {
-        currentLevel = new Level1();
-        currentLevel.start();
-        score = 0;
-        playerHealth = 100;
-
-        healthBar.setHealth(playerHealth);
+        prefetcher.cancel();
+        if (restartSnapshot != null) {
+            //Put the first level back how it started instead of building a new one
+            currentLevel = restartLevel;
+            restartSnapshot.restore(currentLevel);
+            rules.reset();
+            rules.setScore(restartSnapshot.getScore());
+            rules.setHealth(restartSnapshot.getHealth());
+        } else {
+            currentLevel = firstLevel.get();
+            rules.reset();
+        }
 
         view.setWorld(currentLevel);
-        camera = new Camera(view, currentLevel.getStudent(), 0);
+        setupLevel(currentLevel);
+        startLevel(currentLevel);
+        view.repaint();
+    }
+
+    //Saves the level to memory and to the quicksave file (called during a step)
+    private void saveCheckpoint(GameLevel level) {
+        if (level.getChunkManager() != null) {
+            System.out.println("Streamed levels cannot be saved");
+            return;
+        }
+        checkpoint = LevelSnapshot.capture(level, rules.getScore(), rules.getHealth());
+        try {
+            checkpoint.write(QUICKSAVE);
+        } catch (IOException e) {
+            System.err.println("Could not write " + QUICKSAVE + ": " + e.getMessage());
+        }
+    }
+
+    //Restores the last checkpoint, or the quicksave file, if it was taken on this level
+    private void loadCheckpoint(GameLevel level) {
+        LevelSnapshot snapshot = checkpoint;
+        if ((snapshot == null || !snapshot.getLevelName().equals(level.getName())) && Files.exists(QUICKSAVE)) {
+            try {
+                snapshot = LevelSnapshot.read(QUICKSAVE);
+            } catch (IOException e) {
+                System.err.println("Could not read " + QUICKSAVE + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (snapshot == null || !snapshot.getLevelName().equals(level.getName()) || level.getChunkManager() != null) {
+            System.out.println("No checkpoint saved on " + level.getName());
+            return;
+        }
+        snapshot.restore(level);
+        rules.setScore(snapshot.getScore());
+        rules.setHealth(snapshot.getHealth());
+        startRewindRecording(level); //Restored coins are new bodies
+        discardRecording(); //The replay no longer starts from a fresh level
+    }
+
+    //Records the level for rewinding, unless it is streamed (its bodies come and go)
+    private void startRewindRecording(GameLevel level) {
+        if (level.getChunkManager() == null) {
+            rewind.attach(level);
+        } else {
+            rewind.detach();
+        }
+    }
+
+    //Records the player's input on a fresh level so the run can be replayed headless
+    private void startReplayRecording(GameLevel level) {
+        if (!recordReplays) {
+            return;
+        }
+        recorder = new InputRecorder(level.getName(), REPLAY_SEED);
+        controls.setRecorder(recorder);
+    }
+
+    //Writes the recording of a level that has just ended to the replays folder
+    private void finishRecording(GameLevel level) {
+        if (recorder == null) {
+            return;
+        }
+        InputLog log = recorder.finish(level, rules);
+        discardRecording();
+        Path file = REPLAYS.resolve(level.getName().replaceAll("[^A-Za-z0-9]", "_") + "-" + System.currentTimeMillis() + ".rpl");
+        try {
+            log.write(file);
+        } catch (IOException e) {
+            System.err.println("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void discardRecording() {
+        recorder = null;
+        if (controls != null) {
+            controls.setRecorder(null);
+        }
+    }
 
-        //Remove any existing key listeners and add the new one
+    //Copies the state the painting code needs. Only called from postStep, so the thread stepping the level is the only writer
+    private void publishState() {
+        Vec2 player = currentLevel.getStudent().getPosition();
+        if (publishedLevel != currentLevel) {
+            //Nothing to draw between on a new level
+            publishedLevel = currentLevel;
+            publishedY = player.y;
+        }
+        states.getWriteState().capture(steps, currentLevel, publishedY, rules.getHealth(), rules.getScore(),
+                rules.isWon(), rules.isLost());
+        states.publish();
+        publishedY = player.y;
+    }
+
+    //Starts stepping a level, either on its own timer or on the game loop's thread
+    private void startLevel(GameLevel level) {
+        if (loop != null) {
+            loop.setWorld(level);
+        } else {
+            level.start();
+        }
+    }
+
+    private void stopLevel(GameLevel level) {
+        if (loop != null) {
+            loop.pause();
+        } else {
+            level.stop();
+        }
+    }
+
+    //Removes any existing key listeners and adds controls for the given player
+    private void setControls(DynamicBody student) {
         for (KeyListener kl : view.getKeyListeners()) {
             view.removeKeyListener(kl);
         }
-        view.addKeyListener(new PlayerControls(currentLevel.getStudent()));
-
-        setupLevel(currentLevel);
-        view.repaint();
+        //Key events are queued and applied during the step, so they are safe on any thread
+        if (controls != null) {
+            controls.detach();
+        }
+        controls = new PlayerControls(student);
+        view.addKeyListener(controls);
+        view.addKeyListener(gameKeys);
     }
 
     /**
      * Main entry point of the program.
      * Launches the game by creating a new Game instance.
-     * @param args command-line arguments (not used).
+     * @param args optionally --fixed-step to run the physics on its own thread and --record to save
+     *             a replay of every level played, then optionally a level file (.lvl or .txt) to
+     *             start on instead of Level 1.
      */
 
     public static void main(String[] args) {
-        new Game();
+        //Print the collected timings when the game closes
+        Runtime.getRuntime().addShutdownHook(new Thread(PerfStats::printReport));
+
+        //Decode every image and sound up front, behind a progress splash
+        long start = System.nanoTime();
+        AssetManager.preloadWithSplash();
+        PerfStats.record("startup.assets", System.nanoTime() - start);
+
+        boolean fixedStep = false;
+        boolean record = false;
+        String levelFile = null;
+        for (String arg : args) {
+            if (arg.equals("--fixed-step")) {
+                fixedStep = true;
+            } else if (arg.equals("--record")) {
+                record = true;
+            } else {
+                levelFile = arg;
+            }
+        }
+        if (levelFile != null) {
+            String file = levelFile;
+            new Game(() -> new DataLevel(file), fixedStep, record);
+        } else {
+            new Game(Level1::new, fixedStep, record);
+        }
+        PerfStats.record("startup.total", System.nanoTime() - start);
     }
 }
@@ -0,0 +1,232 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless benchmarks for the game's hot paths: step listeners, collectible management,
+ * level construction and whole-level simulation. No window is opened.
+ * Performance changes should be judged against the ns/op and B/op numbers printed here.
+ *
+ * Run with: java game.GameBenchmarks [warmupIterations] [iterations] [iterationMillis] [filter]
+ */
+
+public class GameBenchmarks {
+    private static final int SIMULATION_STEPS = 600; //Ten seconds of game time at 60 steps per second
+
+    public static void main(String[] args) {
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        String filter = args.length > 3 ? args[3] : "";
+        System.setProperty("java.awt.headless", "true");
+
+        BenchmarkHarness harness = new BenchmarkHarness(warmup, iterations, millis);
+        StepEvent step = new StepEvent();
+
+        //Enemy.followPlayer
+        if ("Enemy.followPlayer".contains(filter)) {
+            GameLevel world = new BlankLevel();
+            Enemy enemy = new Enemy(world, new BoxShape(0.25f, 0.25f), 0, 0);
+            Vec2 player = new Vec2(5, 3);
+            harness.run("Enemy.followPlayer", () -> {
+                enemy.followPlayer(player);
+                return enemy;
+            });
+        }
+
+        //One patrolling enemy, moved by the movement system
+        if ("PatrollingEnemy.preStep".contains(filter)) {
+            GameLevel world = new BlankLevel();
+            new PatrollingEnemy(world, new BoxShape(0.25f, 0.25f), 0, 0, -2, 2);
+            MovementSystem system = world.getMovementSystem();
+            harness.run("PatrollingEnemy.preStep", () -> {
+                system.preStep(step);
+                return system;
+            });
+        }
+
+        //One moving platform, moved by the movement system
+        if ("MovingPlatform.preStep".contains(filter)) {
+            GameLevel world = new BlankLevel();
+            new MovingPlatform(world, 2, 0.5f, new Vec2(-4, 12), new Vec2(4, 12), 0.1f);
+            MovementSystem system = world.getMovementSystem();
+            harness.run("MovingPlatform.preStep", () -> {
+                system.preStep(step);
+                return system;
+            });
+        }
+
+        //A platform on a looped spline through many waypoints (the step cost should match the straight one)
+        if ("MovingPlatform.spline.preStep".contains(filter)) {
+            GameLevel world = new BlankLevel();
+            List<Vec2> points = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                double angle = 2 * Math.PI * i / 32;
+                points.add(new Vec2((float) (8 * Math.cos(angle)), (float) (8 * Math.sin(angle) * (1 + i % 3))));
+            }
+            PlatformPath path = new PlatformPath(points, true, PlatformPath.Mode.LOOP, PlatformPath.Easing.SMOOTH);
+            new MovingPlatform(world, 2, 0.5f, path, 6);
+            MovementSystem system = world.getMovementSystem();
+            harness.run("MovingPlatform.spline.preStep", () -> {
+                system.preStep(step);
+                return system;
+            });
+        }
+
+        //Recording one rewind frame of a level with 500 bodies
+        if ("RewindBuffer.record".contains(filter)) {
+            Level1 level = new Level1();
+            for (int i = level.getDynamicBodies().size(); i < 500; i++) {
+                new DynamicBody(level, new BoxShape(0.25f, 0.25f)).setPosition(new Vec2(i % 20, i / 20f));
+            }
+            RewindBuffer rewind = new RewindBuffer(600, 512);
+            rewind.attach(level);
+            harness.run("RewindBuffer.record", () -> {
+                rewind.record(0, 100);
+                return rewind;
+            });
+        }
+
+        //A flickering disappearing platform, replaced once it has vanished
+        if ("DisappearingPlatform.flicker".contains(filter)) {
+            GameLevel world = new BlankLevel();
+            DisappearingPlatform[] platform = {new DisappearingPlatform(world, 1, 0.5f, 0, 0)};
+            TimerWheel wheel = world.getTimerWheel();
+            int[] steps = {0};
+            platform[0].trigger();
+            harness.run("DisappearingPlatform.flicker", () -> {
+                wheel.preStep(step);
+                if (++steps[0] == 90) {
+                    steps[0] = 0;
+                    platform[0].destroy();
+                    platform[0] = new DisappearingPlatform(world, 1, 0.5f, 0, 0);
+                    platform[0].trigger();
+                }
+                return platform[0];
+            });
+        }
+
+        //Scheduling and cancelling a timer
+        if ("TimerWheel.scheduleAndCancel".contains(filter)) {
+            TimerWheel wheel = new BlankLevel().getTimerWheel();
+            Runnable task = () -> {
+            };
+            long[] delay = {0};
+            harness.run("TimerWheel.scheduleAndCancel", () -> {
+                TimerWheel.Timer timer = wheel.schedule(null, 1 + (delay[0]++ & 0xFFFFF), task);
+                wheel.cancel(timer);
+                return timer;
+            });
+        }
+
+        //One step of a wheel with a million timers waiting (should cost about the same as an empty one)
+        if ("TimerWheel.preStep".contains(filter)) {
+            for (int count : new int[]{0, 1_000_000}) {
+                TimerWheel wheel = new BlankLevel().getTimerWheel();
+                Runnable task = () -> {
+                };
+                Random random = new Random(1);
+                for (int i = 0; i < count; i++) {
+                    wheel.schedule(null, 1_000_000 + random.nextInt(10_000_000), task);
+                }
+                harness.run("TimerWheel.preStep(" + count + " pending)", () -> {
+                    wheel.preStep(step);
+                    return wheel;
+                });
+            }
+        }
+
+        //Planning one step for 100 chasing enemies spread over Level 3's platforms (paths cached)
+        if ("NavGraph.plan100".contains(filter)) {
+            Level3 level = new Level3();
+            NavGraph graph = level.getNavGraph();
+            Enemy[] enemies = new Enemy[100];
+            Random random = new Random(1);
+            for (int i = 0; i < enemies.length; i++) {
+                enemies[i] = new Enemy(level, new BoxShape(0.25f, 0.25f), -14 + random.nextInt(29), -10.75f + 6 * random.nextInt(7));
+            }
+            DynamicBody player = level.getStudent();
+            player.setPosition(new Vec2(10, 36));
+            harness.run("NavGraph.plan100", () -> {
+                for (Enemy enemy : enemies) {
+                    enemy.chase(player, graph);
+                }
+                return enemies;
+            });
+        }
+
+        //Finding a path from scratch, from the ground of Level 3 to the last platform it can reach
+        if ("NavGraph.search".contains(filter)) {
+            Level3 level = new Level3();
+            NavGraph graph = level.getNavGraph();
+            int ground = graph.below(0, -10);
+            int reachable = ground;
+            for (int i = 0; i < graph.size(); i++) {
+                if (graph.nextEdge(ground, i) >= 0) {
+                    reachable = i;
+                }
+            }
+            int target = reachable;
+            harness.run("NavGraph.search", () -> {
+                graph.clearCache();
+                return graph.nextEdge(ground, target);
+            });
+        }
+
+        //Spawning and collecting a coin
+        if ("CollectibleManager.spawnAndRemove".contains(filter)) {
+            GameLevel world = new BlankLevel();
+            CollectibleManager manager = new CollectibleManager(world);
+            for (int i = 0; i < 100; i++) {
+                manager.spawnCollectible(i % 20, i / 20);
+            }
+            harness.run("CollectibleManager.spawnAndRemove", () -> {
+                Collectible coin = manager.spawnCollectible(3, 4);
+                manager.removeCollectible(coin);
+                return coin;
+            });
+        }
+
+        //Level construction
+        if ("Level1.new".contains(filter)) {
+            harness.run("Level1.new", Level1::new);
+        }
+        if ("Level2.new".contains(filter)) {
+            harness.run("Level2.new", Level2::new);
+        }
+        if ("Level3.new".contains(filter)) {
+            harness.run("Level3.new", Level3::new);
+        }
+
+        //Whole-level simulation (construction excluded from the step count, not from the time)
+        if ("Level1.simulate".contains(filter)) {
+            harness.run("Level1.simulate(" + SIMULATION_STEPS + " steps)", () -> simulate(new Level1()));
+        }
+        if ("Level2.simulate".contains(filter)) {
+            harness.run("Level2.simulate(" + SIMULATION_STEPS + " steps)", () -> simulate(new Level2()));
+        }
+        if ("Level3.simulate".contains(filter)) {
+            harness.run("Level3.simulate(" + SIMULATION_STEPS + " steps)", () -> simulate(new Level3()));
+        }
+
+        harness.printSummary();
+    }
+
+    //Steps a level with no view attached, with the enemy chasing a player who stands still
+    private static GameLevel simulate(GameLevel level) {
+        Enemy enemy = level.getEnemy();
+        NavGraph graph = level.getNavGraph();
+        for (int i = 0; i < SIMULATION_STEPS; i++) {
+            if (enemy != null) {
+                enemy.chase(level.getStudent(), graph);
+            }
+            level.oneStep();
+        }
+        return level;
+    }
+}
@@ -12,13 +12,87 @@ public abstract class GameLevel extends World {
     protected DynamicBody student;
     protected Enemy enemy;
     protected CollectibleManager collectibleManager;
+    protected ChunkManager chunkManager; //Only set for levels that stream their content
+    private NavGraph navGraph; //Built the first time it is asked for
+    private MovementSystem movementSystem; //Created the first time a body needs it
+    private ContactRouter contactRouter; //Likewise
+    private TriggerSystem triggerSystem;
+    private TimerWheel timerWheel;
+    private DrawList drawList;
+    private final CollisionMatrix collisionMatrix = new CollisionMatrix().standard();
+    private static final float TRIGGER_MARGIN = 5; //How far the default triggers reach past the platforms
+    private static final float TRIGGER_DEPTH = 5; //Half the height of the default triggers
     /**
      * Constructor for the GameLevel class.
      * Creates the collectible manager and calls the populate method for the level.
      */
     public GameLevel() {
+        this(true);
+    }
+
+    /**
+     * Constructor for levels that fill themselves in after construction, such as DataLevel.
+     * @param populateNow true to call populate() straight away.
+     */
+    protected GameLevel(boolean populateNow) {
         collectibleManager = new CollectibleManager(this);
-        populate();
+        configureCollisions(collisionMatrix);
+        if (populateNow) {
+            populate();
+            populated();
+        }
+    }
+
+    /**
+     * Sets which kinds of body can collide in this level, before any bodies are created.
+     * The matrix starts with the standard pairs; levels can allow or deny more.
+     * @param matrix the level's collision matrix.
+     */
+    protected void configureCollisions(CollisionMatrix matrix) {
+    }
+
+    /**
+     * Finishes the level once populate has created its bodies:
+     * gives the player its collision filter and its place in the draw list, and adds the level's triggers.
+     */
+    protected final void populated() {
+        if (student != null) {
+            collisionMatrix.filter(student, CollisionMatrix.PLAYER);
+            getDrawList().addSprite(student, SpriteRegistry.PLAYER, 0.5f);
+        }
+        addTriggers();
+    }
+
+    /**
+     * Adds the level's trigger volumes. By default there is an exit above the exit height (a win zone
+     * on the final level) as wide as the level's platforms.
+     * A streamed level is measured from every platform in its file, not just the bands built so far.
+     * Levels can override this to add checkpoints, calling super.addTriggers() first.
+     */
+    protected void addTriggers() {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float[] streamed = chunkManager != null ? chunkManager.getBounds() : null;
+        if (streamed != null) {
+            minX = streamed[0];
+            maxX = streamed[2];
+        }
+        for (StaticBody body : getStaticBodies()) {
+            if (body instanceof Platform) {
+                Platform platform = (Platform) body;
+                minX = Math.min(minX, platform.getPosition().x - platform.getWidth());
+                maxX = Math.max(maxX, platform.getPosition().x + platform.getWidth());
+            }
+        }
+        if (minX > maxX) {
+            //No platforms to measure, so guess at a screen's width
+            minX = -TRIGGER_MARGIN;
+            maxX = TRIGGER_MARGIN;
+        }
+        float halfWidth = (maxX - minX) / 2 + TRIGGER_MARGIN;
+        float centreX = (minX + maxX) / 2;
+        new TriggerVolume(this, isFinalLevel() ? TriggerVolume.WIN : TriggerVolume.EXIT,
+                halfWidth, TRIGGER_DEPTH, centreX, getExitHeight() + TRIGGER_DEPTH);
     }
     /**
      * Method where the level's bodies, platforms, enemies, and collectibles should be created.
@@ -33,6 +107,69 @@ public abstract class GameLevel extends World {
      */
     public abstract String getBackgroundImage();
 
+    /**
+     * Returns the height the player has to climb past to leave the level.
+     * On the final level this is the height that wins the game.
+     * @return the exit height in world units.
+     */
+    public abstract float getExitHeight();
+
+    /**
+     * Creates the level that comes after this one.
+     * Can be called from a background thread, so it must not touch the current level.
+     * @return the next level, or null if this is the final level.
+     */
+    public GameLevel createNextLevel() {
+        return null;
+    }
+
+    /**
+     * Checks whether this is the last level of the game.
+     * @return true if reaching the exit height wins the game.
+     */
+    public boolean isFinalLevel() {
+        return false;
+    }
+
+    /**
+     * Gets a name for the level, e.g. for the HUD or saved games.
+     * @return the level's name.
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Builds a fresh copy of a level from the name returned by getName, e.g. to replay a recording.
+     * @param name "Level1", "Level2", "Level3" or the path of a level file.
+     * @return the new level.
+     */
+    public static GameLevel create(String name) {
+        switch (name) {
+            case "Level1":
+                return new Level1();
+            case "Level2":
+                return new Level2();
+            case "Level3":
+                return new Level3();
+            default:
+                return new DataLevel(name);
+        }
+    }
+
+    /**
+     * Gets the level a world belongs to, so bodies can reach the level's systems.
+     * @param world the world, which must be a GameLevel.
+     * @return the level.
+     * @throws IllegalArgumentException if the world is a plain World (use BlankLevel instead).
+     */
+    public static GameLevel of(World world) {
+        if (!(world instanceof GameLevel)) {
+            throw new IllegalArgumentException("Game bodies must be created in a GameLevel, not a plain World");
+        }
+        return (GameLevel) world;
+    }
+
     /**
      * Gets the player (student) object in the level.
      * @return the player (student) body.
@@ -54,4 +191,84 @@ public abstract class GameLevel extends World {
     public CollectibleManager getCollectibleManager() {
         return collectibleManager;
     }
+    /**
+     * Gets the movement system that moves this level's patrolling enemies and moving platforms.
+     * @return the level's movement system.
+     */
+    public MovementSystem getMovementSystem() {
+        if (movementSystem == null) {
+            movementSystem = new MovementSystem();
+            addStepListener(movementSystem);
+        }
+        return movementSystem;
+    }
+    /**
+     * Gets the router that sends this level's contacts to the handlers for the bodies' categories.
+     * @return the level's contact router.
+     */
+    public ContactRouter getContactRouter() {
+        if (contactRouter == null) {
+            contactRouter = new ContactRouter();
+            addStepListener(contactRouter);
+        }
+        return contactRouter;
+    }
+    /**
+     * Gets the system that passes on this level's trigger events (exits, checkpoints and so on).
+     * @return the level's trigger system.
+     */
+    public TriggerSystem getTriggerSystem() {
+        if (triggerSystem == null) {
+            triggerSystem = new TriggerSystem();
+            addStepListener(triggerSystem);
+        }
+        return triggerSystem;
+    }
+    /**
+     * Gets the wheel that runs this level's timed effects, counted in the level's steps.
+     * @return the level's timer wheel.
+     */
+    public TimerWheel getTimerWheel() {
+        if (timerWheel == null) {
+            timerWheel = new TimerWheel();
+            addStepListener(timerWheel);
+        }
+        return timerWheel;
+    }
+    /**
+     * Gets the list of this level's drawn bodies, which each published GameState copies.
+     * @return the level's draw list.
+     */
+    public DrawList getDrawList() {
+        if (drawList == null) {
+            drawList = new DrawList();
+        }
+        return drawList;
+    }
+    /**
+     * Gets the matrix that decides which kinds of body in this level collide.
+     * @return the level's collision matrix.
+     */
+    public CollisionMatrix getCollisionMatrix() {
+        return collisionMatrix;
+    }
+    /**
+     * Gets the graph enemies use to find their way between platforms, building it the first time.
+     * @return the navigation graph, or null if the level streams its content (its platforms come and go).
+     */
+    public NavGraph getNavGraph() {
+        Enemy chaser = getEnemy();
+        if (navGraph == null && chunkManager == null && chaser != null) {
+            navGraph = NavGraph.build(this, Enemy.SPEED, PlayerControls.JUMP_IMPULSE / chaser.getMass());
+        }
+        return navGraph;
+    }
+
+    /**
+     * Gets the chunk manager that streams this level's content in and out.
+     * @return the chunk manager, or null if the whole level is always loaded.
+     */
+    public ChunkManager getChunkManager() {
+        return chunkManager;
+    }
 }
@@ -0,0 +1,158 @@
+package game;
+
+import city.cs.engine.*;
+
+import javax.swing.Timer;
+import java.awt.*;
+import java.util.function.DoubleConsumer;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the physics at a fixed tick rate on its own thread, separately from drawing.
+ * The view is repainted at the display's refresh rate, and each frame is told how far it is
+ * between the last tick and the next, so bodies can be drawn part of the way there.
+ * Painting does not wait for the simulation: frames are drawn from the GameState published at
+ * the end of a tick, never from the bodies, so the next tick can run while a frame is painted.
+ */
+
+public class GameLoop {
+    private static final int TICKS_PER_SECOND = 60;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final int MAX_TICKS_PER_FRAME = 5; //Drop time instead of falling further behind
+
+    //Fields
+    private final UserView view;
+    private final ReentrantLock lock = new ReentrantLock(); //Held while stepping and while switching worlds
+    private volatile World world;
+    private volatile boolean paused = true;
+    private volatile boolean running = false;
+    private Thread thread;
+    private Timer renderTimer;
+
+    /**
+     * Constructor for the game loop.
+     *
+     * @param view the view to repaint.
+     */
+    public GameLoop(UserView view) {
+        this.view = view;
+    }
+
+    /**
+     * Starts the simulation thread and the repaint timer.
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+
+        renderTimer = new Timer(1000 / refreshRate(), e -> view.repaint());
+        renderTimer.setCoalesce(true);
+        renderTimer.start();
+    }
+
+    /**
+     * Stops the simulation thread and the repaint timer.
+     */
+    public void shutdown() {
+        running = false;
+        if (renderTimer != null) {
+            renderTimer.stop();
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Switches the loop to step a different world (level) and unpauses it.
+     * Use this instead of World.start(), which would step the world on its own timer as well.
+     *
+     * @param world the world to step.
+     */
+    public void setWorld(World world) {
+        lock.lock();
+        try {
+            this.world = world;
+            paused = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops stepping the world until setWorld or resume is called, e.g. when the game is over.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    /**
+     * Carries on stepping the current world.
+     */
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Paints a frame without waiting for the step that may be running.
+     * Only draw from the copies in a published GameState; the bodies may be half way through a step.
+     *
+     * @param tickTime when the tick being drawn from ended (GameState.getTime()).
+     * @param paint    draws the frame, given how far it is from that tick to the next (0 to 1).
+     */
+    public void paintInterpolated(long tickTime, DoubleConsumer paint) {
+        long start = System.nanoTime();
+        paint.accept(Math.min(1f, Math.max(0f, (float) (start - tickTime) / TICK_NANOS)));
+        Toolkit.getDefaultToolkit().sync();
+        PerfStats.record("loop.paint", System.nanoTime() - start);
+    }
+
+    //Steps the world every TICK_NANOS, catching up (up to a limit) if a tick ran late
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            int ticks = 0;
+            while (System.nanoTime() - next >= 0 && ticks < MAX_TICKS_PER_FRAME) {
+                tick();
+                next += TICK_NANOS;
+                ticks++;
+            }
+            if (ticks == MAX_TICKS_PER_FRAME) {
+                next = System.nanoTime(); //Too far behind, e.g. after a long pause
+            }
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+
+    private void tick() {
+        lock.lock();
+        try {
+            World stepping = world;
+            if (paused || stepping == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            stepping.oneStep();
+            PerfStats.record("loop.tick", System.nanoTime() - start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //The display's refresh rate, or 60 if it cannot be found (e.g. when headless)
+    private static int refreshRate() {
+        try {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+            return rate > 0 ? rate : TICKS_PER_SECOND;
+        } catch (HeadlessException e) {
+            return TICKS_PER_SECOND;
+        }
+    }
+}
@@ -79,7 +79,7 @@ public class GameOverView extends UserView {
         //Draw the score
         g.setColor(Color.WHITE);
         g.setFont(new Font("Times New Roman", Font.BOLD, 24));
-        g.drawString("Your Score: " + game.getScore(), 250, 400);
+        g.drawString("Your Score: " + game.getState().getScore(), 250, 400);
         //Draw the restart instructions
         g.setColor(Color.WHITE);
         g.setFont(new Font("Times New Roman", Font.PLAIN, 24));
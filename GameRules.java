@@ -0,0 +1,204 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+/**
+ * The rules of the game, kept apart from the window so they can run headless (e.g. in a replay).
+ * Tracks score and health, hurts the player when an enemy touches them, collects coins,
+ * sets the chasing enemy after the player and reacts to the level's triggers (exit, win
+ * and checkpoints).
+ * Anything the game shows or plays (sounds, the game over screen) is left to a Listener.
+ */
+
+public class GameRules {
+    public static final int MAX_HEALTH = 100;
+    private static final int ENEMY_DAMAGE = 25;
+    private static final int COIN_SCORE = 10;
+
+    //Fields
+    private final Listener listener;
+    private int score = 0;
+    private int health = MAX_HEALTH;
+    private boolean won = false;
+    private boolean lost = false;
+
+    /**
+     * Told about events the game may want to show or play. Every method does nothing by default.
+     */
+    public interface Listener {
+        /**
+         * Called when an enemy hurts the player, or the player falls out of the level.
+         */
+        default void hurt() {
+        }
+
+        /**
+         * Called when the player collects a coin, before it is removed.
+         *
+         * @param coin the coin.
+         */
+        default void collected(Collectible coin) {
+        }
+
+        /**
+         * Called when the player's health runs out.
+         */
+        default void died() {
+        }
+
+        /**
+         * Called when the player reaches the exit of the final level.
+         */
+        default void won() {
+        }
+
+        /**
+         * Called when the player reaches the exit of a level that is not the last one.
+         *
+         * @param level the level being left.
+         */
+        default void reachedExit(GameLevel level) {
+        }
+
+        /**
+         * Called when the player reaches a checkpoint.
+         *
+         * @param level the level the checkpoint is in.
+         */
+        default void reachedCheckpoint(GameLevel level) {
+        }
+    }
+
+    /**
+     * Constructor for the rules.
+     *
+     * @param listener told about hurts, pickups, deaths, exits and the win.
+     */
+    public GameRules(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Applies the rules to a level: adds its step listener and the player's collision listeners.
+     * Call once per level.
+     *
+     * @param level the level.
+     */
+    public void attach(GameLevel level) {
+        DynamicBody student = level.getStudent();
+        Enemy enemy = level.getEnemy();
+
+        //Enemies are moved by the movement system, in most detail near the player
+        MovementSystem movement = level.getMovementSystem();
+        movement.setFocus(student);
+        if (enemy != null) {
+            movement.setNavGraph(level.getNavGraph());
+            movement.addChaser(enemy, student);
+        }
+
+        level.addStepListener(new StepListener() {
+            @Override
+            public void preStep(StepEvent stepEvent) {
+                //Nothing moves on once the game is won
+                if (won) {
+                    return;
+                }
+                student.setAngularVelocity(0);
+            }
+
+            @Override
+            public void postStep(StepEvent stepEvent) {
+            }
+        });
+
+        //The level's triggers report the player reaching the exit or a checkpoint
+        level.getTriggerSystem().addListener((trigger, body) -> {
+            if (body != student || won) {
+                return;
+            }
+            switch (trigger.getKind()) {
+                case TriggerVolume.EXIT:
+                    listener.reachedExit(level);
+                    break;
+                case TriggerVolume.WIN:
+                    won = true;
+                    listener.won();
+                    break;
+                case TriggerVolume.CHECKPOINT:
+                    listener.reachedCheckpoint(level);
+                    break;
+                default:
+                    break;
+            }
+        });
+
+        //Enemies hurt the player and knock them upwards
+        ContactRouter router = level.getContactRouter();
+        router.track(student, ContactRouter.PLAYER);
+        router.onBegin(ContactRouter.PLAYER, ContactRouter.ENEMY, (self, other) -> {
+            Vec2 currentVel = student.getLinearVelocity();
+            student.setLinearVelocity(new Vec2(currentVel.x, currentVel.y + 2));
+            damage();
+        });
+
+        //Coins are sensors, so they report the player overlapping them
+        level.getCollectibleManager().setPickupListener((coin, body) -> {
+            if (body == student) {
+                score += COIN_SCORE;
+                listener.collected(coin);
+                level.getCollectibleManager().removeCollectible(coin);
+            }
+        });
+    }
+
+    //Takes a hit's worth of health, and ends the game when it runs out
+    private void damage() {
+        health -= ENEMY_DAMAGE;
+        listener.hurt();
+        if (health <= 0 && !lost) {
+            lost = true;
+            listener.died();
+        }
+    }
+
+    /**
+     * Puts the score and health back to the start of a game.
+     */
+    public void reset() {
+        score = 0;
+        health = MAX_HEALTH;
+        won = false;
+        lost = false;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    /**
+     * Sets the health, e.g. when a saved state is restored.
+     *
+     * @param health the new health.
+     */
+    public void setHealth(int health) {
+        this.health = health;
+        lost = health <= 0;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+}
@@ -0,0 +1,114 @@
+package game;
+
+/**
+ * A copy of everything the painting code needs, taken at the end of a simulation step.
+ * Painting reads only these copies, so it never sees a step half way through.
+ * The copies are reused (see GameStateBuffer), so taking one creates no garbage once their
+ * draw lists have grown to the size of the level.
+ */
+
+public class GameState {
+    //Fields
+    private long step;
+    private long time; //System.nanoTime() when the state was taken
+    private float playerY;
+    private float previousPlayerY; //Where the player was after the step before
+    private int health;
+    private int score;
+    private String levelName = "";
+    private String background = "";
+    private final DrawList bodies = new DrawList(); //Where the level's bodies were after this step and the one before
+    private boolean won;
+    private boolean lost;
+
+    //Fills in this state from the game (called only on the thread that steps the level)
+    void capture(long step, GameLevel level, float previousY, int health, int score, boolean won, boolean lost) {
+        this.step = step;
+        time = System.nanoTime();
+        playerY = level.getStudent().getPosition().y;
+        previousPlayerY = previousY;
+        this.health = health;
+        this.score = score;
+        levelName = level.getName();
+        background = level.getBackgroundImage();
+        DrawList drawn = level.getDrawList();
+        drawn.advance();
+        bodies.copyFrom(drawn);
+        this.won = won;
+        this.lost = lost;
+    }
+
+    /**
+     * Returns the number of the step this state was taken after.
+     *
+     * @return the step number.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Returns when this state was taken, to tell how far a frame is towards the next step.
+     *
+     * @return the System.nanoTime() of the end of the step.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public float getPlayerY() {
+        return playerY;
+    }
+
+    /**
+     * Returns the player's y position after the step before this one, for drawing between the two.
+     *
+     * @return the previous y position.
+     */
+    public float getPreviousPlayerY() {
+        return previousPlayerY;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the name of the level, e.g. "Level2" or the file a level was loaded from.
+     *
+     * @return the level name.
+     */
+    public String getLevelName() {
+        return levelName;
+    }
+
+    /**
+     * Returns the file path of the level's background image.
+     *
+     * @return the background image path.
+     */
+    public String getBackground() {
+        return background;
+    }
+
+    /**
+     * Returns the level's drawn bodies, with where they were after this step and the one before.
+     *
+     * @return the copied draw list, which does not change while this state is being read.
+     */
+    public DrawList getBodies() {
+        return bodies;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+}
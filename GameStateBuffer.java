@@ -0,0 +1,49 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passes GameState copies from the simulation thread to the painting thread without locks.
+ * Three states are shared: one being written, one being read and one waiting in the middle.
+ * Publishing swaps the written state into the middle in a single atomic step, and reading swaps
+ * the middle one out if it is newer, so neither side ever waits for or overwrites the other.
+ */
+
+public class GameStateBuffer {
+    private static final int FRESH = 4; //Set in middle when it holds a state the reader has not seen
+
+    //Fields
+    private final GameState[] states = {new GameState(), new GameState(), new GameState()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int writing = 0; //Only used by the writer
+    private int reading = 2; //Only used by the reader
+
+    /**
+     * Returns the state to fill in next. Must only be called from the writing thread.
+     *
+     * @return a state that the reader cannot see until it is published.
+     */
+    public GameState getWriteState() {
+        return states[writing];
+    }
+
+    /**
+     * Makes the state returned by getWriteState the latest one.
+     */
+    public void publish() {
+        writing = middle.getAndSet(writing | FRESH) & ~FRESH;
+    }
+
+    /**
+     * Returns the latest published state. Must only be called from the reading thread (the EDT).
+     * The returned state does not change until read is called again.
+     *
+     * @return the latest state.
+     */
+    public GameState read() {
+        if ((middle.get() & FRESH) != 0) {
+            reading = middle.getAndSet(reading) & ~FRESH;
+        }
+        return states[reading];
+    }
+}
@@ -16,6 +16,7 @@ public class Healthbar {
     private int width; //Width of the health bar
     private int height; //Height of the health bar
     private Color color; //Colour of the health bar
+    private boolean changed = true; //True when the health has changed since the bar was last drawn
 
     /**
      * Constructor for the Healthbar.
@@ -40,7 +41,21 @@ public class Healthbar {
      * @param health the new health value to set.
      */
     public void setHealth(int health) {
-        this.currentHealth = Math.max(0, Math.min(health, maxHealth)); // Ensure health stays within bounds
+        int newHealth = Math.max(0, Math.min(health, maxHealth)); // Ensure health stays within bounds
+        if (newHealth != currentHealth) {
+            currentHealth = newHealth;
+            changed = true;
+        }
+    }
+
+    /**
+     * Checks whether the health has changed since the last time the bar was drawn.
+     * Used by the HUD to decide when it needs redrawing.
+     *
+     * @return true if the bar needs to be drawn again.
+     */
+    public boolean hasChanged() {
+        return changed;
     }
     /**
      * Draws the health bar on the screen.
@@ -63,5 +78,6 @@ public class Healthbar {
         //Draw the border
         g.setColor(Color.WHITE);
         g.drawRect(x, y, width, height);
+        changed = false;
     }
 }
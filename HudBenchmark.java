@@ -0,0 +1,54 @@
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the per-frame cost of the old HUD drawing with the cached HudLayer.
+ * Prints the average time and bytes allocated per frame for each.
+ * Run with: java game.HudBenchmark
+ */
+
+public class HudBenchmark {
+    private static final int WARMUP = 2000;
+    private static final int FRAMES = 20000;
+
+    public static void main(String[] args) {
+        BufferedImage frame = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = frame.createGraphics();
+        Healthbar healthBar = new Healthbar(100, 200, 20, Color.GREEN);
+        int score = 40;
+
+        //Old paintForeground: new fonts and a new score string every frame
+        Runnable legacy = () -> {
+            healthBar.draw(g, 300, 20);
+            g.setColor(Color.cyan);
+            g.setFont(new Font("Times New Roman", Font.PLAIN, 18));
+            g.drawString("Score: " + score, 10, 40);
+        };
+
+        //New paintForeground: blit the cached HUD
+        HudLayer hud = new HudLayer(healthBar);
+        hud.setScore(score);
+        Runnable cached = () -> hud.draw(g);
+
+        report("Legacy HUD", legacy);
+        report("HudLayer  ", cached);
+        g.dispose();
+    }
+
+    //Runs the paint and prints the average time and allocation per frame
+    private static void report(String name, Runnable paint) {
+        for (int i = 0; i < WARMUP; i++) {
+            paint.run();
+        }
+        long bytes = PerfStats.threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            paint.run();
+        }
+        long time = System.nanoTime() - start;
+        bytes = PerfStats.threadAllocatedBytes() - bytes;
+        System.out.printf("%s: %8.2f us/frame, %8.1f B/frame%n", name, time / 1000.0 / FRAMES, (double) bytes / FRAMES);
+    }
+}
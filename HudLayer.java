@@ -0,0 +1,134 @@
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the HUD (health bar, score and win message) from cached images.
+ * The HUD is only redrawn into its image when the health or score actually changes,
+ * so every other frame is just a single image copy with no new fonts or strings.
+ */
+
+public class HudLayer {
+    private static final Font SCORE_FONT = new Font("Times New Roman", Font.PLAIN, 18);
+    private static final Font WIN_FONT = new Font("Times New Roman", Font.BOLD, 40);
+    private static final int STRIP_WIDTH = 510; //Wide enough for the score and the health bar at x = 300
+    private static final int STRIP_HEIGHT = 45; //Tall enough for the score and the health bar
+
+    //Fields
+    private final Healthbar healthBar;
+    private int score;
+    private boolean won;
+    private boolean dirty = true; //True when the strip needs redrawing
+    private BufferedImage strip; //Translucent image holding the score and health bar
+    private BufferedImage banner; //The "YOU WIN!" message, drawn once
+    private int bannerAscent;
+
+    /**
+     * Constructor for the HUD layer.
+     *
+     * @param healthBar the health bar to show.
+     */
+    public HudLayer(Healthbar healthBar) {
+        this.healthBar = healthBar;
+    }
+
+    /**
+     * Updates the score shown on the HUD.
+     * The HUD is only redrawn if the score is different.
+     *
+     * @param score the new score.
+     */
+    public void setScore(int score) {
+        if (score != this.score) {
+            this.score = score;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Shows or hides the win message.
+     *
+     * @param won true if the player has won.
+     */
+    public void setWon(boolean won) {
+        this.won = won;
+    }
+
+    /**
+     * Forces the HUD to be redrawn on the next frame.
+     */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Draws the HUD, redrawing the cached image first if anything has changed.
+     *
+     * @param g the Graphics2D object used to draw.
+     */
+    public void draw(Graphics2D g) {
+        if (healthBar.hasChanged()) {
+            dirty = true;
+        }
+        if (strip == null) {
+            strip = createImage(g, STRIP_WIDTH, STRIP_HEIGHT);
+            dirty = true;
+        }
+        if (dirty) {
+            redrawStrip();
+        }
+        g.drawImage(strip, 0, 0, null);
+
+        //Draw the game win message
+        if (won) {
+            if (banner == null) {
+                createBanner();
+            }
+            g.drawImage(banner, 300, 300 - bannerAscent, null);
+        }
+    }
+
+    //Redraws the score and health bar into the strip image
+    private void redrawStrip() {
+        Graphics2D g = strip.createGraphics();
+        //Clear to fully transparent
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, strip.getWidth(), strip.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+
+        //Draw the health bar
+        healthBar.draw(g, 300, 20);
+        //Draw the score
+        g.setColor(Color.cyan);
+        g.setFont(SCORE_FONT);
+        g.drawString("Score: " + score, 10, 40);
+        g.dispose();
+        dirty = false;
+    }
+
+    //Creates a transparent image that matches the screen, so Swing can keep it in video memory
+    private static BufferedImage createImage(Graphics2D g, int width, int height) {
+        GraphicsConfiguration gc = g == null ? null : g.getDeviceConfiguration();
+        if (gc != null) {
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    //Renders the win message into its own image
+    private void createBanner() {
+        BufferedImage measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D mg = measure.createGraphics();
+        FontMetrics metrics = mg.getFontMetrics(WIN_FONT);
+        mg.dispose();
+
+        bannerAscent = metrics.getAscent();
+        banner = createImage(null, metrics.stringWidth("YOU WIN!"), metrics.getHeight());
+        Graphics2D g = banner.createGraphics();
+        g.setFont(WIN_FONT);
+        g.setColor(Color.GREEN);
+        g.drawString("YOU WIN!", 0, bannerAscent);
+        g.dispose();
+    }
+}
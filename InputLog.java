@@ -0,0 +1,220 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A recorded run of one level: the level name, seed, the input for every step (run-length
+ * encoded) and the state the level ended in, for ReplayDriver to check against.
+ *
+ * Format: magic "RPL1", version, level name, seed, step count, run count, then each run as an
+ * input byte and a variable-length step count, then the final state hash, score and health.
+ */
+
+public final class InputLog {
+    public static final int MAGIC = 0x52504C31; //"RPL1"
+    public static final short VERSION = 1;
+
+    //Fields
+    private final String levelName;
+    private final long seed;
+    private final int steps;
+    private final byte[] values;
+    private final int[] lengths;
+    private final long finalHash;
+    private final int finalScore;
+    private final int finalHealth;
+
+    InputLog(String levelName, long seed, int steps, byte[] values, int[] lengths, long finalHash, int finalScore, int finalHealth) {
+        this.levelName = levelName;
+        this.seed = seed;
+        this.steps = steps;
+        this.values = values;
+        this.lengths = lengths;
+        this.finalHash = finalHash;
+        this.finalScore = finalScore;
+        this.finalHealth = finalHealth;
+    }
+
+    /**
+     * Reads a log written by write.
+     *
+     * @param file the replay file.
+     * @return the log.
+     * @throws IOException if the file cannot be read or is not a replay.
+     */
+    public static InputLog read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 6 || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a replay");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported replay version " + version);
+        }
+        try {
+            String levelName = LevelLoader.readString(buffer);
+            long seed = buffer.getLong();
+            int steps = buffer.getInt();
+            int runs = buffer.getInt();
+            //Each run takes at least two bytes, so a bad count is caught before allocating for it
+            if (steps < 0 || runs < 0 || runs > buffer.remaining() / 2) {
+                throw new IOException(file + " has a bad step or run count");
+            }
+            byte[] values = new byte[runs];
+            int[] lengths = new int[runs];
+            long total = 0;
+            for (int i = 0; i < runs; i++) {
+                values[i] = buffer.get();
+                lengths[i] = readVarInt(buffer);
+                if (lengths[i] < 0) {
+                    throw new IOException(file + " has a run with a negative length");
+                }
+                total += lengths[i];
+            }
+            if (total != steps) {
+                throw new IOException(file + " has runs adding up to " + total + " steps instead of " + steps);
+            }
+            return new InputLog(levelName, seed, steps, values, lengths, buffer.getLong(), buffer.getInt(), buffer.getInt());
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException(file + " is cut short or corrupt", e);
+        }
+    }
+
+    /**
+     * Writes the log to a file.
+     *
+     * @param file the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        byte[] name = levelName.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeLong(seed);
+        out.writeInt(steps);
+        out.writeInt(values.length);
+        for (int i = 0; i < values.length; i++) {
+            out.writeByte(values[i]);
+            writeVarInt(out, lengths[i]);
+        }
+        out.writeLong(finalHash);
+        out.writeInt(finalScore);
+        out.writeInt(finalHealth);
+        out.flush();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, bytes.toByteArray());
+    }
+
+    /**
+     * Creates an input source that plays the recorded input back one step at a time.
+     * After the last recorded step it returns no input.
+     *
+     * @return a new input source, starting at the first step.
+     */
+    public PlayerControls.InputSource player() {
+        return new PlayerControls.InputSource() {
+            private int run = 0;
+            private int used = 0; //Steps of the current run already returned
+
+            @Override
+            public int nextInput() {
+                while (run < values.length && used == lengths[run]) {
+                    run++;
+                    used = 0;
+                }
+                if (run == values.length) {
+                    return 0;
+                }
+                used++;
+                return values[run];
+            }
+        };
+    }
+
+    /**
+     * Hashes the parts of a level's state a replay must reproduce exactly: every dynamic body's
+     * position and velocity, the coins left, and the score and health.
+     *
+     * @param level the level.
+     * @param rules the rules holding the score and health.
+     * @return the hash.
+     */
+    public static long hash(GameLevel level, GameRules rules) {
+        long h = 1125899906842597L;
+        for (DynamicBody body : level.getDynamicBodies()) {
+            Vec2 position = body.getPosition();
+            Vec2 velocity = body.getLinearVelocity();
+            h = 31 * h + Float.floatToIntBits(position.x);
+            h = 31 * h + Float.floatToIntBits(position.y);
+            h = 31 * h + Float.floatToIntBits(velocity.x);
+            h = 31 * h + Float.floatToIntBits(velocity.y);
+        }
+        h = 31 * h + level.getCollectibleManager().getCount();
+        h = 31 * h + rules.getScore();
+        h = 31 * h + rules.getHealth();
+        return h;
+    }
+
+    public String getLevelName() {
+        return levelName;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public long getFinalHash() {
+        return finalHash;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public int getFinalHealth() {
+        return finalHealth;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Variable-length number is longer than an int");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package game;
+
+/**
+ * A fixed-size queue of key events passed from the Swing event thread to the simulation step.
+ * Only one thread adds events and only one thread takes them, so no locks are needed: each side
+ * only writes its own counter, and the arrays are read after the counter that publishes them.
+ * Events are dropped (and counted) if the queue is full rather than blocking the event thread.
+ */
+
+public class InputQueue {
+    //Fields
+    private final int[] events; //Key code shifted left by one, with the low bit set for a press
+    private final long[] times; //System.nanoTime() when each event was added
+    private final int mask;
+    private volatile long head = 0; //Next event to take, only written by the consumer
+    private volatile long tail = 0; //Next free slot, only written by the producer
+    private volatile long dropped = 0;
+
+    /**
+     * Receives the events taken from the queue.
+     */
+    public interface Handler {
+        /**
+         * Called once for each event, oldest first.
+         *
+         * @param keyCode the key code, e.g. KeyEvent.VK_W.
+         * @param pressed true for a key press, false for a release.
+         * @param nanos   System.nanoTime() when the event was queued.
+         */
+        void event(int keyCode, boolean pressed, long nanos);
+    }
+
+    /**
+     * Constructor for the input queue.
+     *
+     * @param capacity the most events that can wait at once (rounded up to a power of two).
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        events = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an event. Must only be called from the producer thread.
+     *
+     * @param keyCode the key code.
+     * @param pressed true for a key press, false for a release.
+     * @param nanos   the time of the event from System.nanoTime().
+     * @return false if the queue was full and the event was dropped.
+     */
+    public boolean offer(int keyCode, boolean pressed, long nanos) {
+        long t = tail;
+        if (t - head == events.length) {
+            dropped++;
+            return false;
+        }
+        int i = (int) t & mask;
+        events[i] = keyCode << 1 | (pressed ? 1 : 0);
+        times[i] = nanos;
+        tail = t + 1; //Publishes the slot to the consumer
+        return true;
+    }
+
+    /**
+     * Passes every waiting event to the handler. Must only be called from the consumer thread.
+     *
+     * @param handler receives the events.
+     * @return the number of events handled.
+     */
+    public int drain(Handler handler) {
+        long h = head;
+        long t = tail;
+        for (long n = h; n < t; n++) {
+            int i = (int) n & mask;
+            handler.event(events[i] >> 1, (events[i] & 1) != 0, times[i]);
+        }
+        head = t; //Frees the slots for the producer
+        return (int) (t - h);
+    }
+
+    /**
+     * Returns how many events have been dropped because the queue was full.
+     *
+     * @return the number of dropped events.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
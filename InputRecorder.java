@@ -0,0 +1,63 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Records the input word PlayerControls applies each step, as runs of repeated values.
+ * Players hold the same keys for many steps at a time, so a whole level usually takes a few
+ * hundred bytes. Finishing the recording adds a hash of the level's final state so a replay
+ * can check it ended up in exactly the same place.
+ */
+
+public class InputRecorder {
+    //Fields
+    private final String levelName;
+    private final long seed;
+    private byte[] values = new byte[64]; //The input word of each run
+    private int[] lengths = new int[64]; //How many steps each run lasted
+    private int runs = 0;
+    private int steps = 0;
+
+    /**
+     * Constructor for the input recorder.
+     *
+     * @param levelName the name of the level being played (see GameLevel.getName).
+     * @param seed      the seed for anything random in the level.
+     */
+    public InputRecorder(String levelName, long seed) {
+        this.levelName = levelName;
+        this.seed = seed;
+    }
+
+    /**
+     * Records the input for one step.
+     *
+     * @param input the input bits applied this step.
+     */
+    public void record(int input) {
+        steps++;
+        if (runs > 0 && values[runs - 1] == (byte) input) {
+            lengths[runs - 1]++;
+            return;
+        }
+        if (runs == values.length) {
+            values = Arrays.copyOf(values, runs * 2);
+            lengths = Arrays.copyOf(lengths, runs * 2);
+        }
+        values[runs] = (byte) input;
+        lengths[runs] = 1;
+        runs++;
+    }
+
+    /**
+     * Ends the recording.
+     *
+     * @param level the level, in the state it finished in.
+     * @param rules the rules, for the final score and health.
+     * @return the finished log.
+     */
+    public InputLog finish(GameLevel level, GameRules rules) {
+        return new InputLog(levelName, seed, steps, Arrays.copyOf(values, runs), Arrays.copyOf(lengths, runs),
+                InputLog.hash(level, rules), rules.getScore(), rules.getHealth());
+    }
+}
@@ -43,7 +43,7 @@ public class Level1 extends GameLevel {
         student = new DynamicBody(this, studentShape);
         student.setPosition(new Vec2(4, -5));
         student.setAngularVelocity(0);
-        student.addImage(new BodyImage("data/sprite-new2.png", 0.5f));
+        student.addImage(SpriteRegistry.get(SpriteRegistry.PLAYER, 0.5f));
 
         //Add an enemy near the ground platform
         Shape enemyShape = new BoxShape(0.25f, 0.25f);
@@ -66,4 +66,24 @@ public class Level1 extends GameLevel {
     public String getBackgroundImage() {
         return "data/background.jpg";
     }
+
+    /**
+     * Returns the height the player must reach to move on to Level 2.
+     *
+     * @return the exit height.
+     */
+    @Override
+    public float getExitHeight() {
+        return 25;
+    }
+
+    /**
+     * Creates Level 2, which follows this level.
+     *
+     * @return a new Level 2.
+     */
+    @Override
+    public GameLevel createNextLevel() {
+        return new Level2();
+    }
 }
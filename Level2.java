@@ -43,7 +43,7 @@ public class Level2 extends GameLevel {
         collectibleManager.spawnCollectible(-6, 31);
         collectibleManager.spawnCollectible(-6, -4);
         collectibleManager.spawnCollectible(-6, 7);
-        collectibleManager.spawnCollectible(6, 20);
+        collectibleManager.spawnCollectible(6, 3);
 
         //Walls
         new Platform(this, 0.5f, 100, -15.5f, 0);
@@ -54,7 +54,7 @@ public class Level2 extends GameLevel {
         student = new DynamicBody(this, studentShape);
         student.setPosition(new Vec2(4, -5));
         student.setAngularVelocity(0);
-        student.addImage(new BodyImage("data/sprite-new2.png", 0.5f));
+        student.addImage(SpriteRegistry.get(SpriteRegistry.PLAYER, 0.5f));
 
         //Add enemy
         Shape enemyShape = new BoxShape(0.25f, 0.25f);
@@ -93,6 +93,26 @@ public class Level2 extends GameLevel {
         return "data/background1.jpg";
     }
 
+    /**
+     * Returns the height the player must reach to move on to Level 3.
+     *
+     * @return the exit height.
+     */
+    @Override
+    public float getExitHeight() {
+        return 35;
+    }
+
+    /**
+     * Creates Level 3, which follows this level.
+     *
+     * @return a new Level 3.
+     */
+    @Override
+    public GameLevel createNextLevel() {
+        return new Level3();
+    }
+
     /**
      * Returns the main enemy instance for this level.
      * Used by the Game class to control enemy behavior like following the player.
@@ -47,7 +47,7 @@ public class Level3 extends GameLevel {
         collectibleManager.spawnCollectible(0, -8);
         collectibleManager.spawnCollectible(-3, 18);
         collectibleManager.spawnCollectible(-10, 23);
-        collectibleManager.spawnCollectible(-10, 3);
+        collectibleManager.spawnCollectible(-10, -10.5f);
         collectibleManager.spawnCollectible(0, 29);
         collectibleManager.spawnCollectible(10, 36);
 
@@ -60,7 +60,7 @@ public class Level3 extends GameLevel {
         student = new DynamicBody(this, studentShape);
         student.setPosition(new Vec2(13, -10));
         student.setAngularVelocity(0);
-        student.addImage(new BodyImage("data/sprite-new2.png", 0.5f));
+        student.addImage(SpriteRegistry.get(SpriteRegistry.PLAYER, 0.5f));
 
         //Static enemy on the ground level
         Shape enemyShape = new BoxShape(0.25f, 0.25f);
@@ -108,6 +108,26 @@ public class Level3 extends GameLevel {
     public String getBackgroundImage() {
         return "data/background3.jpg";
     }
+
+    /**
+     * Returns the height the player must reach to win the game.
+     *
+     * @return the win height.
+     */
+    @Override
+    public float getExitHeight() {
+        return 69;
+    }
+
+    /**
+     * Level 3 is the last level, so reaching its exit wins the game.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isFinalLevel() {
+        return true;
+    }
     /**
      * Returns the enemy object for this level.
      * Used by the Game class to control enemy behavior like following the player.
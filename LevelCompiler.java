@@ -0,0 +1,154 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a text level description into the binary level format.
+ *
+ * Each line of the text file is a keyword followed by numbers, for example:
+ * <pre>
+ *   background data/background.jpg
+ *   next levels/level2.lvl
+ *   exit 25
+ *   final
+ *   streamed                     (only build bodies near the camera, for very tall levels)
+ *   player 4 -5
+ *   platform 30 0.5 0 -11.5      (width height x y)
+ *   moving 2 0.5 -4 12 4 12 0.1  (width height startX startY endX endY speed)
+ *   disappearing 1 0.5 -3 17     (width height x y)
+ *   enemy -14 -11                (x y)
+ *   patrol 0 26 -2 2             (x y leftLimit rightLimit)
+ *   coin 5 4                     (x y)
+ * </pre>
+ * Blank lines and lines starting with # are ignored.
+ * Usage: java game.LevelCompiler levels/level1.txt levels/level1.lvl
+ */
+
+public class LevelCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java game.LevelCompiler <level.txt> <level.lvl>");
+            return;
+        }
+        Files.write(Paths.get(args[1]), compile(Paths.get(args[0])));
+        System.out.println("Compiled " + args[0] + " to " + args[1]);
+    }
+
+    /**
+     * Compiles a text level file.
+     *
+     * @param source the text level file.
+     * @return the level in binary form.
+     * @throws IOException if the file cannot be read or contains a mistake.
+     */
+    public static byte[] compile(Path source) throws IOException {
+        String background = "";
+        String next = "";
+        float exit = 0;
+        byte flags = 0;
+        float playerX = 0, playerY = 0;
+        List<Byte> tags = new ArrayList<>();
+        List<float[]> values = new ArrayList<>();
+
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "background":
+                        background = parts[1];
+                        break;
+                    case "next":
+                        next = parts[1];
+                        break;
+                    case "exit":
+                        exit = Float.parseFloat(parts[1]);
+                        break;
+                    case "final":
+                        flags |= LevelFormat.FLAG_FINAL;
+                        break;
+                    case "streamed":
+                        flags |= LevelFormat.FLAG_STREAMED;
+                        break;
+                    case "player":
+                        playerX = Float.parseFloat(parts[1]);
+                        playerY = Float.parseFloat(parts[2]);
+                        break;
+                    default:
+                        byte tag = tagFor(parts[0]);
+                        float[] numbers = new float[LevelFormat.sizeOf(tag)];
+                        if (parts.length - 1 != numbers.length) {
+                            throw new IOException("expected " + numbers.length + " numbers");
+                        }
+                        for (int i = 0; i < numbers.length; i++) {
+                            numbers[i] = Float.parseFloat(parts[i + 1]);
+                        }
+                        tags.add(tag);
+                        values.add(numbers);
+                }
+            } catch (RuntimeException | IOException e) {
+                throw new IOException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(LevelFormat.MAGIC);
+        out.writeShort(LevelFormat.VERSION);
+        writeString(out, background);
+        writeString(out, next);
+        out.writeFloat(exit);
+        out.writeByte(flags);
+        out.writeFloat(playerX);
+        out.writeFloat(playerY);
+        out.writeInt(tags.size());
+        for (int i = 0; i < tags.size(); i++) {
+            out.writeByte(tags.get(i));
+            for (float value : values.get(i)) {
+                out.writeFloat(value);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    //Maps a keyword in the text file to its record tag
+    private static byte tagFor(String keyword) {
+        switch (keyword) {
+            case "platform":
+                return LevelFormat.PLATFORM;
+            case "moving":
+                return LevelFormat.MOVING;
+            case "disappearing":
+                return LevelFormat.DISAPPEARING;
+            case "enemy":
+                return LevelFormat.ENEMY;
+            case "patrol":
+                return LevelFormat.PATROL;
+            case "coin":
+                return LevelFormat.COLLECTIBLE;
+            default:
+                throw new IllegalArgumentException("unknown keyword '" + keyword + "'");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] data = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(data.length);
+        out.write(data);
+    }
+}
@@ -0,0 +1,61 @@
+package game;
+
+/**
+ * Constants describing the binary level file format (.lvl).
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   int     MAGIC ("LVL1")
+ *   short   VERSION
+ *   string  background image path
+ *   string  next level file ("" on the final level)
+ *   float   exit height
+ *   byte    flags (FLAG_FINAL, FLAG_STREAMED)
+ *   float   player x, player y
+ *   int     record count
+ *   records...
+ * </pre>
+ * Strings are a short length followed by UTF-8 bytes. Each record is a one-byte tag
+ * followed by a fixed number of floats (see {@link #sizeOf(byte)}).
+ */
+
+public final class LevelFormat {
+    public static final int MAGIC = 0x4C564C31; //"LVL1"
+    public static final short VERSION = 1;
+
+    public static final byte FLAG_FINAL = 1;
+    public static final byte FLAG_STREAMED = 2; //Content is streamed in bands by a ChunkManager
+
+    //Record tags and their floats
+    public static final byte PLATFORM = 1;      //width, height, x, y
+    public static final byte MOVING = 2;        //width, height, startX, startY, endX, endY, speed
+    public static final byte DISAPPEARING = 3;  //width, height, x, y
+    public static final byte ENEMY = 4;         //x, y
+    public static final byte PATROL = 5;        //x, y, leftLimit, rightLimit
+    public static final byte COLLECTIBLE = 6;   //x, y
+
+    private LevelFormat() {
+    }
+
+    /**
+     * Returns the number of floats stored after a record tag.
+     *
+     * @param tag the record tag.
+     * @return the number of floats in the record.
+     */
+    public static int sizeOf(byte tag) {
+        switch (tag) {
+            case PLATFORM:
+            case DISAPPEARING:
+            case PATROL:
+                return 4;
+            case MOVING:
+                return 7;
+            case ENEMY:
+            case COLLECTIBLE:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Unknown level record tag: " + tag);
+        }
+    }
+}
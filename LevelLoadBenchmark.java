@@ -0,0 +1,48 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+/**
+ * Compares building the levels with the hand-written populate() methods against
+ * loading the same levels from compiled level files.
+ * Run with: java game.LevelLoadBenchmark
+ */
+
+public class LevelLoadBenchmark {
+    private static final int WARMUP = 200;
+    private static final int RUNS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        String[] lvlFiles = new String[3];
+        for (int i = 1; i <= 3; i++) {
+            //Compile each text level to a temporary .lvl file
+            Path lvl = Files.createTempFile("level" + i, ".lvl");
+            lvl.toFile().deleteOnExit();
+            Files.write(lvl, LevelCompiler.compile(Paths.get("levels/level" + i + ".txt")));
+            lvlFiles[i - 1] = lvl.toString();
+        }
+
+        report("Level1 populate()", Level1::new);
+        report("level1 .lvl      ", () -> new DataLevel(lvlFiles[0]));
+        report("Level2 populate()", Level2::new);
+        report("level2 .lvl      ", () -> new DataLevel(lvlFiles[1]));
+        report("Level3 populate()", Level3::new);
+        report("level3 .lvl      ", () -> new DataLevel(lvlFiles[2]));
+    }
+
+    //Builds the level many times and prints the average time
+    private static void report(String name, Supplier<GameLevel> level) {
+        for (int i = 0; i < WARMUP; i++) {
+            level.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            level.get();
+        }
+        System.out.printf("%s: %8.1f us/level%n", name, (System.nanoTime() - start) / 1000.0 / RUNS);
+    }
+}
@@ -0,0 +1,146 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads levels stored in the binary level format (see LevelFormat).
+ * Compiled .lvl files are memory-mapped and bodies are created straight from the buffer.
+ * Text level files (.txt) are compiled in memory first, which is handy while designing levels.
+ */
+
+public final class LevelLoader {
+
+    private LevelLoader() {
+    }
+
+    /**
+     * Opens a level file and checks its header.
+     * The returned buffer is positioned just after the magic number and version.
+     *
+     * @param path the .lvl or .txt level file.
+     * @return a buffer holding the level.
+     * @throws IOException if the file cannot be read or is not a level file.
+     */
+    public static ByteBuffer open(String path) throws IOException {
+        ByteBuffer buffer;
+        if (path.endsWith(".txt")) {
+            buffer = ByteBuffer.wrap(LevelCompiler.compile(Paths.get(path)));
+        } else {
+            try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        if (buffer.remaining() < 6 || buffer.getInt() != LevelFormat.MAGIC) {
+            throw new IOException(path + " is not a level file");
+        }
+        short version = buffer.getShort();
+        if (version != LevelFormat.VERSION) {
+            throw new IOException(path + " has unsupported level version " + version);
+        }
+        return buffer;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from the buffer.
+     *
+     * @param buffer the level buffer.
+     * @return the string.
+     */
+    public static String readString(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.getShort()];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the player, platforms, enemies and collectibles described by the records in the buffer.
+     * If the level has a ChunkManager, everything except the player and the chasing enemy is handed
+     * to it instead, to be built when the camera gets close.
+     * The buffer must be positioned at the player position, just after the header.
+     *
+     * @param buffer the level buffer.
+     * @param level  the level to fill.
+     */
+    public static void populate(ByteBuffer buffer, GameLevel level) {
+        //Add the player to the level
+        level.student = new DynamicBody(level, new BoxShape(0.25f, 0.25f));
+        level.student.setPosition(new Vec2(buffer.getFloat(), buffer.getFloat()));
+        level.student.setAngularVelocity(0);
+        level.student.addImage(SpriteRegistry.get(SpriteRegistry.PLAYER, 0.5f));
+
+        Shape enemyShape = new BoxShape(0.25f, 0.25f);
+        ChunkManager chunks = level.getChunkManager();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte tag = buffer.get();
+            if (chunks != null && tag != LevelFormat.ENEMY) {
+                addToChunks(buffer, tag, chunks, enemyShape);
+                continue;
+            }
+            switch (tag) {
+                case LevelFormat.PLATFORM:
+                    new Platform(level, buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    break;
+                case LevelFormat.MOVING: {
+                    float width = buffer.getFloat();
+                    float height = buffer.getFloat();
+                    Vec2 start = new Vec2(buffer.getFloat(), buffer.getFloat());
+                    Vec2 end = new Vec2(buffer.getFloat(), buffer.getFloat());
+                    new MovingPlatform(level, width, height, start, end, buffer.getFloat());
+                    break;
+                }
+                case LevelFormat.DISAPPEARING:
+                    new DisappearingPlatform(level, buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    break;
+                case LevelFormat.ENEMY:
+                    level.enemy = new Enemy(level, enemyShape, buffer.getFloat(), buffer.getFloat());
+                    break;
+                case LevelFormat.PATROL:
+                    new PatrollingEnemy(level, enemyShape,
+                            buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    break;
+                case LevelFormat.COLLECTIBLE:
+                    level.getCollectibleManager().spawnCollectible(buffer.getFloat(), buffer.getFloat());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown level record tag: " + tag);
+            }
+        }
+    }
+
+    //Hands one record to the chunk manager instead of building it now
+    private static void addToChunks(ByteBuffer buffer, byte tag, ChunkManager chunks, Shape enemyShape) {
+        switch (tag) {
+            case LevelFormat.PLATFORM:
+                chunks.addPlatform(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                break;
+            case LevelFormat.MOVING: {
+                float width = buffer.getFloat();
+                float height = buffer.getFloat();
+                Vec2 start = new Vec2(buffer.getFloat(), buffer.getFloat());
+                Vec2 end = new Vec2(buffer.getFloat(), buffer.getFloat());
+                chunks.addMoving(width, height, start, end, buffer.getFloat());
+                break;
+            }
+            case LevelFormat.DISAPPEARING:
+                chunks.addDisappearing(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                break;
+            case LevelFormat.PATROL:
+                chunks.addPatrol(enemyShape, buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                break;
+            case LevelFormat.COLLECTIBLE:
+                chunks.addCollectible(buffer.getFloat(), buffer.getFloat());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown level record tag: " + tag);
+        }
+    }
+}
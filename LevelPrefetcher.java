@@ -0,0 +1,119 @@
+package game;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds the next level on a background thread before the player reaches the exit.
+ * Building starts once the player climbs within a set distance of the current level's exit,
+ * so by the time the transition happens the new level is usually ready to swap in.
+ */
+
+public class LevelPrefetcher {
+    //Fields
+    private final ExecutorService executor;
+    private final AtomicReference<Pending> pending = new AtomicReference<>();
+    private float margin; //How far below the exit height building starts
+
+    /**
+     * Constructor for the level prefetcher.
+     *
+     * @param margin how far below a level's exit height to start building the next level.
+     */
+    public LevelPrefetcher(float margin) {
+        this.margin = margin;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "level-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Changes how far below the exit the next level starts being built.
+     *
+     * @param margin the distance in world units.
+     */
+    public void setMargin(float margin) {
+        this.margin = margin;
+    }
+
+    /**
+     * Called every step with the player's height.
+     * Starts building the next level once the player is close enough to the exit.
+     *
+     * @param level   the level being played.
+     * @param playerY the player's current height.
+     */
+    public void update(GameLevel level, float playerY) {
+        if (!level.isFinalLevel() && playerY > level.getExitHeight() - margin) {
+            start(level);
+        }
+    }
+
+    /**
+     * Starts building the level that follows the given one, unless it is already being built.
+     *
+     * @param level the level being played.
+     */
+    public void start(GameLevel level) {
+        Pending current = pending.get();
+        if (current != null && current.from == level) {
+            return;
+        }
+        Pending next = new Pending(level, executor.submit(() -> {
+            long start = System.nanoTime();
+            GameLevel built = level.createNextLevel();
+            PerfStats.record("level.build", System.nanoTime() - start);
+            return built;
+        }));
+        if (pending.compareAndSet(current, next) && current != null) {
+            current.future.cancel(false);
+        }
+    }
+
+    /**
+     * Takes the level that follows the given one, waiting for it to finish building if needed.
+     * If nothing was prefetched, the level is built now.
+     *
+     * @param level the level being played.
+     * @return the next level, ready to start.
+     */
+    public GameLevel take(GameLevel level) {
+        start(level);
+        Pending taken = pending.getAndSet(null);
+        long start = System.nanoTime();
+        try {
+            return taken.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return level.createNextLevel();
+        } catch (ExecutionException e) {
+            System.out.println("Error building next level: " + e.getCause());
+            return level.createNextLevel();
+        } finally {
+            PerfStats.record("level.prefetch.wait", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Throws away any level that is being built, e.g. when the game restarts.
+     */
+    public void cancel() {
+        Pending current = pending.getAndSet(null);
+        if (current != null) {
+            current.future.cancel(false);
+        }
+    }
+
+    //A level being built and the level it follows
+    private static class Pending {
+        final GameLevel from;
+        final Future<GameLevel> future;
+
+        Pending(GameLevel from, Future<GameLevel> future) {
+            this.from = from;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A saved copy of a level's changing state: body transforms and velocities, patrol directions,
+ * moving platform progress, disappearing platforms, the remaining coins, and the score and health.
+ * Restoring puts the same level object back into that state in time proportional to the number
+ * of bodies, without rebuilding the world. Snapshots can be kept in memory or written to a file.
+ *
+ * Format: magic "SNP1", version, level name, score, health, body records, then coin positions.
+ * Bodies are recorded in world order, skipping plain platforms (which never change) and coins.
+ */
+
+public final class LevelSnapshot {
+    public static final int MAGIC = 0x534E5031; //"SNP1"
+    public static final short VERSION = 1;
+
+    //Body record tags
+    private static final byte DYNAMIC = 1;      //x y angle vx vy spin
+    private static final byte PATROLLER = 2;    //as DYNAMIC, then movingRight
+    private static final byte MOVING = 3;       //path progress
+    private static final byte DISAPPEARING = 4; //flicker counter, gone
+
+    //Fields
+    private final byte[] data;
+    private final String levelName;
+    private final int score;
+    private final int health;
+
+    private LevelSnapshot(byte[] data) throws IOException {
+        this.data = data;
+        ByteBuffer buffer = header(data);
+        levelName = LevelLoader.readString(buffer);
+        score = buffer.getInt();
+        health = buffer.getInt();
+    }
+
+    /**
+     * Takes a snapshot of a level. Call it between steps (e.g. from a step listener or while stopped).
+     * Streamed levels are not supported because their bodies come and go with the camera.
+     *
+     * @param level  the level.
+     * @param score  the player's score.
+     * @param health the player's health.
+     * @return the snapshot.
+     */
+    public static LevelSnapshot capture(GameLevel level, int score, int health) {
+        if (level.getChunkManager() != null) {
+            throw new IllegalArgumentException("Streamed levels cannot be saved");
+        }
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeString(out, level.getName());
+            out.writeInt(score);
+            out.writeInt(health);
+
+            List<Body> bodies = savedBodies(level);
+            out.writeInt(bodies.size());
+            for (Body body : bodies) {
+                if (body instanceof DynamicBody) {
+                    DynamicBody dynamic = (DynamicBody) body;
+                    out.writeByte(body instanceof PatrollingEnemy ? PATROLLER : DYNAMIC);
+                    Vec2 position = dynamic.getPosition();
+                    Vec2 velocity = dynamic.getLinearVelocity();
+                    out.writeFloat(position.x);
+                    out.writeFloat(position.y);
+                    out.writeFloat(dynamic.getAngle());
+                    out.writeFloat(velocity.x);
+                    out.writeFloat(velocity.y);
+                    out.writeFloat(dynamic.getAngularVelocity());
+                    if (body instanceof PatrollingEnemy) {
+                        out.writeBoolean(((PatrollingEnemy) body).isMovingRight());
+                    }
+                } else if (body instanceof MovingPlatform) {
+                    out.writeByte(MOVING);
+                    out.writeFloat(((MovingPlatform) body).getPathProgress());
+                } else {
+                    DisappearingPlatform platform = (DisappearingPlatform) body;
+                    out.writeByte(DISAPPEARING);
+                    out.writeInt(platform.getFlickerCounter());
+                    out.writeBoolean(platform.isGone());
+                }
+            }
+
+            List<Collectible> coins = level.getCollectibleManager().getCollectibles();
+            out.writeInt(coins.size());
+            for (Collectible coin : coins) {
+                Vec2 position = coin.getPosition();
+                out.writeFloat(position.x);
+                out.writeFloat(position.y);
+            }
+            out.flush();
+            LevelSnapshot snapshot = new LevelSnapshot(bytes.toByteArray());
+            PerfStats.record("snapshot.capture", System.nanoTime() - start);
+            return snapshot;
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //Cannot happen when writing to memory
+        }
+    }
+
+    /**
+     * Reads a snapshot written by write.
+     *
+     * @param file the snapshot file.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static LevelSnapshot read(Path file) throws IOException {
+        return new LevelSnapshot(Files.readAllBytes(file));
+    }
+
+    /**
+     * Writes the snapshot to a file.
+     *
+     * @param file the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, data);
+    }
+
+    /**
+     * Puts a level back into the saved state.
+     * The level must be the one the snapshot was taken from, or a freshly built copy of it.
+     *
+     * @param level the level to restore.
+     * @throws IllegalArgumentException if the snapshot does not match the level.
+     */
+    public void restore(GameLevel level) {
+        if (!levelName.equals(level.getName()) || level.getChunkManager() != null) {
+            throw new IllegalArgumentException("Snapshot of " + levelName + " does not fit " + level.getName());
+        }
+        long start = System.nanoTime();
+        ByteBuffer buffer;
+        try {
+            buffer = header(data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //Checked when the snapshot was made
+        }
+        LevelLoader.readString(buffer);
+        buffer.getInt(); //Score and health are read by the constructor
+        buffer.getInt();
+
+        List<Body> bodies = savedBodies(level);
+        int count = buffer.getInt();
+        if (count != bodies.size()) {
+            throw new IllegalArgumentException("Snapshot has " + count + " bodies but the level has " + bodies.size());
+        }
+        Vec2 scratch = new Vec2();
+        for (Body body : bodies) {
+            byte tag = buffer.get();
+            if (tag != tagOf(body)) {
+                throw new IllegalArgumentException("Snapshot does not match the bodies in " + levelName);
+            }
+            switch (tag) {
+                case DYNAMIC:
+                case PATROLLER: {
+                    DynamicBody dynamic = (DynamicBody) body;
+                    dynamic.setPosition(scratch.set(buffer.getFloat(), buffer.getFloat()));
+                    dynamic.setAngle(buffer.getFloat());
+                    dynamic.setLinearVelocity(scratch.set(buffer.getFloat(), buffer.getFloat()));
+                    dynamic.setAngularVelocity(buffer.getFloat());
+                    if (tag == PATROLLER) {
+                        ((PatrollingEnemy) body).setMovingRight(buffer.get() != 0);
+                    }
+                    break;
+                }
+                case MOVING:
+                    ((MovingPlatform) body).setPathProgress(buffer.getFloat());
+                    break;
+                default:
+                    ((DisappearingPlatform) body).restore(buffer.getInt(), buffer.get() != 0);
+            }
+        }
+
+        //Keep coins that are still there, remove extra ones and bring back collected ones
+        Set<Long> saved = new HashSet<>();
+        int coins = buffer.getInt();
+        for (int i = 0; i < coins; i++) {
+            saved.add(key(buffer.getFloat(), buffer.getFloat()));
+        }
+        CollectibleManager manager = level.getCollectibleManager();
+        List<Collectible> current = new ArrayList<>(manager.getCollectibles());
+        for (Collectible coin : current) {
+            Vec2 position = coin.getPosition();
+            if (!saved.remove(key(position.x, position.y))) {
+                manager.removeCollectible(coin);
+            }
+        }
+        for (long position : saved) {
+            manager.spawnCollectible(Float.intBitsToFloat((int) (position >>> 32)), Float.intBitsToFloat((int) position));
+        }
+        PerfStats.record("snapshot.restore", System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the name of the level the snapshot was taken from.
+     *
+     * @return the level name.
+     */
+    public String getLevelName() {
+        return levelName;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    /**
+     * Returns the size of the snapshot.
+     *
+     * @return the number of bytes.
+     */
+    public int size() {
+        return data.length;
+    }
+
+    //The bodies with state worth saving, in world order
+    private static List<Body> savedBodies(GameLevel level) {
+        List<Body> bodies = new ArrayList<>(level.getDynamicBodies());
+        for (StaticBody body : level.getStaticBodies()) {
+            if (body instanceof MovingPlatform || body instanceof DisappearingPlatform) {
+                bodies.add(body);
+            }
+        }
+        return bodies;
+    }
+
+    private static byte tagOf(Body body) {
+        if (body instanceof PatrollingEnemy) {
+            return PATROLLER;
+        }
+        if (body instanceof DynamicBody) {
+            return DYNAMIC;
+        }
+        return body instanceof MovingPlatform ? MOVING : DISAPPEARING;
+    }
+
+    private static ByteBuffer header(byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.remaining() < 6 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a level snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        return buffer;
+    }
+
+    private static long key(float x, float y) {
+        return ((long) Float.floatToIntBits(x) << 32) | (Float.floatToIntBits(y) & 0xffffffffL);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] data = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(data.length);
+        out.write(data);
+    }
+}
@@ -0,0 +1,52 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+/**
+ * Measures how the MovementSystem copes with large numbers of movers.
+ * Builds a world with the given number of patrolling enemies and moving platforms and times
+ * the movement update alone, reporting the cost per mover and the bytes allocated per step.
+ * Then times it again with a focus at the bottom, so most enemies are far away or asleep.
+ * Run with: java game.MovementBenchmark [movers]
+ */
+
+public class MovementBenchmark {
+    private static final int WARMUP_STEPS = 500;
+    private static final int STEPS = 2000;
+
+    public static void main(String[] args) {
+        int movers = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        GameLevel world = new BlankLevel();
+        Shape shape = new BoxShape(0.25f, 0.25f);
+        for (int i = 0; i < movers / 2; i++) {
+            new PatrollingEnemy(world, shape, 0, i * 2, -5, 5);
+            new MovingPlatform(world, 1, 0.5f, new Vec2(-10, i * 2 + 1), new Vec2(10, i * 2 + 1), 0.1f);
+        }
+        MovementSystem system = world.getMovementSystem();
+        StepEvent event = new StepEvent();
+        measure(system, event, "all");
+
+        //Enemies only update in detail near the focus
+        system.setFocus(new DynamicBody(world, shape));
+        measure(system, event, "focus");
+        System.out.printf("  last step: %d near, %d far, %d asleep, %d put off%n",
+                system.getAgentsRun(MovementSystem.LOD_NEAR), system.getAgentsRun(MovementSystem.LOD_FAR),
+                system.getAgentsRun(MovementSystem.LOD_ASLEEP), system.getDeferred());
+    }
+
+    private static void measure(MovementSystem system, StepEvent event, String label) {
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            system.preStep(event);
+        }
+        long bytes = PerfStats.threadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < STEPS; i++) {
+            system.preStep(event);
+        }
+        long time = System.nanoTime() - start;
+        bytes = PerfStats.threadAllocatedBytes() - bytes;
+        System.out.printf("%d movers (%s): %8.1f us/step, %6.1f ns/mover, %8.1f B/step%n", system.size(), label,
+                time / 1000.0 / STEPS, (double) time / STEPS / system.size(), (double) bytes / STEPS);
+    }
+}
@@ -0,0 +1,481 @@
+package game;
+
+import city.cs.engine.Body;
+import city.cs.engine.DynamicBody;
+import city.cs.engine.StepEvent;
+import city.cs.engine.StepListener;
+import org.jbox2d.common.Vec2;
+
+import java.util.Arrays;
+
+/**
+ * Moves every patrolling enemy, chasing enemy and moving platform in a world from a single step listener.
+ * The movement state is kept in plain arrays (one array per field) and updated in one loop
+ * that creates no new objects, then written back to the bodies.
+ * Each level owns its own movement system (see GameLevel.getMovementSystem).
+ *
+ * Once a focus (the player) is set, enemies get a level of detail from their height above or
+ * below it: near ones are updated every step, ones further away but still on screen every few
+ * steps (up to a fixed number per step), and off-screen ones stop walking and are put to sleep in
+ * the physics engine once they are standing on something. The budget is a count rather than a
+ * time, so the same enemies are updated on every machine and replays stay exact.
+ */
+
+public class MovementSystem implements StepListener {
+    //Enemy levels of detail
+    public static final int LOD_NEAR = 0;   //Updated every step
+    public static final int LOD_FAR = 1;    //Updated every FAR_INTERVAL steps
+    public static final int LOD_ASLEEP = 2; //Stopped and asleep
+    private static final float NEAR_RANGE = 8;  //Height from the focus within which enemies update every step
+    private static final float VIEW_RANGE = 17; //Half the view's height plus a margin; beyond it enemies sleep
+    private static final int FAR_INTERVAL = 4;
+    private static final int FAR_BUDGET = 512; //Most far enemies updated in one step; the rest wait a step
+    private static final float RESTING_SPEED = 0.05f; //Vertical speed below which a supported enemy can sleep
+
+    //Patrolling enemies
+    private PatrollingEnemy[] patrollers = new PatrollingEnemy[8];
+    private float[] leftLimit = new float[8];
+    private float[] rightLimit = new float[8];
+    private float[] patrolSpeed = new float[8];
+    private boolean[] movingRight = new boolean[8];
+    private org.jbox2d.dynamics.Body[] patrolPhysics = new org.jbox2d.dynamics.Body[8]; //For sleeping, or null
+    private int[] patrolRun = new int[8]; //Step the enemy was last updated
+    private boolean[] patrolAsleep = new boolean[8];
+    private int patrolCount = 0;
+
+    //Chasing enemies and the bodies they chase
+    private Enemy[] chasers = new Enemy[2];
+    private Body[] chaseTargets = new Body[2];
+    private org.jbox2d.dynamics.Body[] chasePhysics = new org.jbox2d.dynamics.Body[2];
+    private int[] chaseRun = new int[2];
+    private boolean[] chaseAsleep = new boolean[2];
+    private int chaseCount = 0;
+    private NavGraph nav; //Lets chasers find their way between platforms, or null
+
+    //Level of detail
+    private Body focus; //Null to update every enemy every step
+    private int step = 0;
+    private int cursor = 0; //First patroller to look at, so ones put off by the budget go first next time
+    private final int[] agentsRun = new int[3]; //Enemies at each level of detail in the last step
+    private int deferred = 0;
+
+    //Moving platforms
+    private MovingPlatform[] platforms = new MovingPlatform[8];
+    private PlatformPath[] paths = new PlatformPath[8];
+    private org.jbox2d.dynamics.Body[] kinematic = new org.jbox2d.dynamics.Body[8]; //Null if moved by position
+    private float[] travelled = new float[8]; //Distance travelled in the current cycle of the path
+    private float[] platformSpeed = new float[8]; //World units per second
+    private int platformCount = 0;
+
+    private final Vec2 scratch = new Vec2(); //Reused for every velocity and position written back
+    private final Vec2 target = new Vec2();
+
+    /**
+     * Creates an empty movement system. Levels create their own, so use GameLevel.getMovementSystem.
+     */
+    MovementSystem() {
+    }
+
+    /**
+     * Starts moving a patrolling enemy.
+     *
+     * @param enemy      the enemy.
+     * @param left       the furthest left x-position it patrols to.
+     * @param right      the furthest right x-position it patrols to.
+     * @param speed      its horizontal speed.
+     */
+    public void addPatroller(PatrollingEnemy enemy, float left, float right, float speed) {
+        if (patrolCount == patrollers.length) {
+            int size = patrolCount * 2;
+            patrollers = Arrays.copyOf(patrollers, size);
+            leftLimit = Arrays.copyOf(leftLimit, size);
+            rightLimit = Arrays.copyOf(rightLimit, size);
+            patrolSpeed = Arrays.copyOf(patrolSpeed, size);
+            movingRight = Arrays.copyOf(movingRight, size);
+            patrolPhysics = Arrays.copyOf(patrolPhysics, size);
+            patrolRun = Arrays.copyOf(patrolRun, size);
+            patrolAsleep = Arrays.copyOf(patrolAsleep, size);
+        }
+        int i = patrolCount++;
+        patrollers[i] = enemy;
+        leftLimit[i] = left;
+        rightLimit[i] = right;
+        patrolSpeed[i] = speed;
+        movingRight[i] = true;
+        patrolPhysics[i] = PhysicsBridge.getBody(enemy);
+        patrolRun[i] = step - i % FAR_INTERVAL; //Spread far updates over the interval
+        patrolAsleep[i] = false;
+        enemy.moverIndex = i;
+    }
+
+    /**
+     * Stops moving a patrolling enemy (the last one is moved into its place).
+     *
+     * @param enemy the enemy to remove.
+     */
+    public void removePatroller(PatrollingEnemy enemy) {
+        int i = enemy.moverIndex;
+        if (i < 0) {
+            return;
+        }
+        int last = --patrolCount;
+        patrollers[i] = patrollers[last];
+        leftLimit[i] = leftLimit[last];
+        rightLimit[i] = rightLimit[last];
+        patrolSpeed[i] = patrolSpeed[last];
+        movingRight[i] = movingRight[last];
+        patrolPhysics[i] = patrolPhysics[last];
+        patrolRun[i] = patrolRun[last];
+        patrolAsleep[i] = patrolAsleep[last];
+        patrollers[i].moverIndex = i;
+        patrollers[last] = null;
+        patrolPhysics[last] = null;
+        enemy.moverIndex = -1;
+        //The cursor may now point past the end, e.g. when a streamed band is unloaded
+        if (cursor >= patrolCount) {
+            cursor = 0;
+        }
+    }
+
+    /**
+     * Starts an enemy chasing a body left and right.
+     *
+     * @param enemy  the enemy.
+     * @param target the body to chase, usually the player.
+     */
+    public void addChaser(Enemy enemy, Body target) {
+        if (enemy.moverIndex >= 0) {
+            chaseTargets[enemy.moverIndex] = target;
+            return;
+        }
+        if (chaseCount == chasers.length) {
+            int size = chaseCount * 2;
+            chasers = Arrays.copyOf(chasers, size);
+            chaseTargets = Arrays.copyOf(chaseTargets, size);
+            chasePhysics = Arrays.copyOf(chasePhysics, size);
+            chaseRun = Arrays.copyOf(chaseRun, size);
+            chaseAsleep = Arrays.copyOf(chaseAsleep, size);
+        }
+        int i = chaseCount++;
+        chasers[i] = enemy;
+        chaseTargets[i] = target;
+        chasePhysics[i] = PhysicsBridge.getBody(enemy);
+        chaseRun[i] = step - i % FAR_INTERVAL;
+        chaseAsleep[i] = false;
+        enemy.moverIndex = i;
+    }
+
+    /**
+     * Sets the graph chasing enemies use to reach platforms other than their own.
+     *
+     * @param nav the level's navigation graph, or null to only chase horizontally.
+     */
+    public void setNavGraph(NavGraph nav) {
+        this.nav = nav;
+    }
+
+    /**
+     * Stops an enemy chasing (the last one is moved into its place).
+     *
+     * @param enemy the enemy to remove.
+     */
+    public void removeChaser(Enemy enemy) {
+        int i = enemy.moverIndex;
+        if (i < 0) {
+            return;
+        }
+        int last = --chaseCount;
+        chasers[i] = chasers[last];
+        chaseTargets[i] = chaseTargets[last];
+        chasePhysics[i] = chasePhysics[last];
+        chaseRun[i] = chaseRun[last];
+        chaseAsleep[i] = chaseAsleep[last];
+        chasers[i].moverIndex = i;
+        chasers[last] = null;
+        chaseTargets[last] = null;
+        chasePhysics[last] = null;
+        enemy.moverIndex = -1;
+    }
+
+    /**
+     * Sets the body enemies are simulated in detail around, usually the player the camera follows.
+     * The levels only scroll up and down, so only the height difference is used.
+     *
+     * @param focus the body, or null to update every enemy every step.
+     */
+    public void setFocus(Body focus) {
+        this.focus = focus;
+        if (focus == null) {
+            //Wake everything so nothing is left standing still
+            for (int i = 0; i < patrolCount; i++) {
+                wake(patrolAsleep, patrolPhysics, i);
+            }
+            for (int i = 0; i < chaseCount; i++) {
+                wake(chaseAsleep, chasePhysics, i);
+            }
+        }
+    }
+
+    /**
+     * Returns how many enemies were at a level of detail in the last step: how many were
+     * updated every step (LOD_NEAR), were updated this step out of every few (LOD_FAR), or are asleep (LOD_ASLEEP).
+     *
+     * @param lod LOD_NEAR, LOD_FAR or LOD_ASLEEP.
+     * @return the number of enemies.
+     */
+    public int getAgentsRun(int lod) {
+        return agentsRun[lod];
+    }
+
+    /**
+     * Returns how many far enemies were due an update in the last step but had to wait
+     * because the step's far-update budget was used up.
+     *
+     * @return the number of enemies put off.
+     */
+    public int getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Starts moving a platform along a path.
+     *
+     * @param platform the platform.
+     * @param path     the path to follow.
+     * @param speed    the speed along the path in world units per second.
+     * @param physics  the platform's JBox2D body if it is kinematic (moved by velocity), otherwise null.
+     */
+    public void addPlatform(MovingPlatform platform, PlatformPath path, float speed, org.jbox2d.dynamics.Body physics) {
+        if (platformCount == platforms.length) {
+            int size = platformCount * 2;
+            platforms = Arrays.copyOf(platforms, size);
+            paths = Arrays.copyOf(paths, size);
+            kinematic = Arrays.copyOf(kinematic, size);
+            travelled = Arrays.copyOf(travelled, size);
+            platformSpeed = Arrays.copyOf(platformSpeed, size);
+        }
+        int i = platformCount++;
+        platforms[i] = platform;
+        paths[i] = path;
+        kinematic[i] = physics;
+        travelled[i] = 0;
+        platformSpeed[i] = speed;
+        platform.moverIndex = i;
+    }
+
+    /**
+     * Stops moving a platform (the last one is moved into its place).
+     *
+     * @param platform the platform to remove.
+     */
+    public void removePlatform(MovingPlatform platform) {
+        int i = platform.moverIndex;
+        if (i < 0) {
+            return;
+        }
+        int last = --platformCount;
+        platforms[i] = platforms[last];
+        paths[i] = paths[last];
+        kinematic[i] = kinematic[last];
+        travelled[i] = travelled[last];
+        platformSpeed[i] = platformSpeed[last];
+        platforms[i].moverIndex = i;
+        platforms[last] = null;
+        paths[last] = null;
+        kinematic[last] = null;
+        platform.moverIndex = -1;
+    }
+
+    boolean isMovingRight(int i) {
+        return movingRight[i];
+    }
+
+    void setMovingRight(int i, boolean right) {
+        movingRight[i] = right;
+    }
+
+    float getTravelled(int i) {
+        return travelled[i];
+    }
+
+    //Jumps a platform to a point along its path
+    void setTravelled(int i, float distance) {
+        float cycle = paths[i].getCycleLength();
+        travelled[i] = cycle > 0 ? distance % cycle : 0;
+        platforms[i].moveTo(paths[i].positionAt(travelled[i], target));
+    }
+
+    /**
+     * Returns how many bodies this system is moving.
+     *
+     * @return the number of patrollers plus moving platforms.
+     */
+    public int size() {
+        return patrolCount + platformCount;
+    }
+
+    /**
+     * Moves every patroller and platform by one step.
+     *
+     * @param stepEvent the event triggered at each simulation step
+     */
+    @Override
+    public void preStep(StepEvent stepEvent) {
+        float dt = stepEvent.getStep() > 0 ? stepEvent.getStep() : 1 / 60f;
+        step++;
+        agentsRun[LOD_NEAR] = 0;
+        agentsRun[LOD_FAR] = 0;
+        agentsRun[LOD_ASLEEP] = 0;
+        deferred = 0;
+        if (focus == null) {
+            for (int i = 0; i < patrolCount; i++) {
+                patrol(i, false, dt);
+            }
+            for (int i = 0; i < chaseCount; i++) {
+                chase(i);
+            }
+            agentsRun[LOD_NEAR] = patrolCount + chaseCount;
+        } else {
+            updateByDetail(dt);
+        }
+
+        //Moving platforms: advance along the path and look up where that is in the path's table
+        for (int i = 0; i < platformCount; i++) {
+            float cycle = paths[i].getCycleLength();
+            travelled[i] += platformSpeed[i] * dt;
+            if (travelled[i] >= cycle) {
+                travelled[i] = cycle > 0 ? travelled[i] % cycle : 0;
+            }
+            paths[i].positionAt(travelled[i], target);
+            if (kinematic[i] != null) {
+                //Set the velocity that lands the platform on the path point by the end of the step,
+                //so anything standing on it is carried along by friction
+                Vec2 current = platforms[i].getPosition();
+                kinematic[i].setLinearVelocity(scratch.set((target.x - current.x) / dt, (target.y - current.y) / dt));
+            } else {
+                platforms[i].moveTo(target);
+            }
+        }
+    }
+
+    //Updates each enemy as often as its distance from the focus calls for
+    private void updateByDetail(float dt) {
+        float focusY = focus.getPosition().y;
+
+        for (int i = 0; i < chaseCount; i++) {
+            int lod = detail(chasers[i].getPosition().y, focusY);
+            agentsRun[lod]++;
+            if (lod == LOD_ASLEEP) {
+                sleep(chaseAsleep, chasePhysics, chasers[i], i);
+            } else {
+                wake(chaseAsleep, chasePhysics, i);
+                if (lod == LOD_NEAR || step - chaseRun[i] >= FAR_INTERVAL) {
+                    chase(i);
+                    chaseRun[i] = step;
+                }
+            }
+        }
+
+        //Start where the budget ran out last step, so the same enemies are not always the ones left waiting
+        int firstDeferred = -1;
+        for (int k = 0; k < patrolCount; k++) {
+            int i = cursor + k < patrolCount ? cursor + k : cursor + k - patrolCount;
+            int lod = detail(patrollers[i].getPosition().y, focusY);
+            if (lod == LOD_ASLEEP) {
+                sleep(patrolAsleep, patrolPhysics, patrollers[i], i);
+                agentsRun[LOD_ASLEEP]++;
+                continue;
+            }
+            wake(patrolAsleep, patrolPhysics, i);
+            if (lod == LOD_NEAR) {
+                patrol(i, false, dt);
+                patrolRun[i] = step;
+                agentsRun[LOD_NEAR]++;
+            } else if (step - patrolRun[i] >= FAR_INTERVAL) {
+                if (agentsRun[LOD_FAR] >= FAR_BUDGET) {
+                    if (firstDeferred < 0) {
+                        firstDeferred = i;
+                    }
+                    deferred++;
+                    continue;
+                }
+                patrol(i, true, dt);
+                patrolRun[i] = step;
+                agentsRun[LOD_FAR]++;
+            }
+        }
+        cursor = firstDeferred >= 0 ? firstDeferred : 0;
+    }
+
+    private static int detail(float y, float focusY) {
+        float dy = Math.abs(y - focusY);
+        return dy <= NEAR_RANGE ? LOD_NEAR : dy <= VIEW_RANGE ? LOD_FAR : LOD_ASLEEP;
+    }
+
+    //Walks a patroller at a fixed speed, turning round at the limits.
+    //A far patroller turns early if it would pass a limit before its next update, FAR_INTERVAL steps of dt away.
+    private void patrol(int i, boolean far, float dt) {
+        float x = patrollers[i].getPosition().x;
+        float ahead = far ? patrolSpeed[i] * FAR_INTERVAL * dt : 0;
+        if (movingRight[i]) {
+            if (x + ahead >= rightLimit[i]) {
+                movingRight[i] = false;
+            }
+            scratch.set(patrolSpeed[i], 0);
+        } else {
+            if (x - ahead <= leftLimit[i]) {
+                movingRight[i] = true;
+            }
+            scratch.set(-patrolSpeed[i], 0);
+        }
+        patrollers[i].setLinearVelocity(scratch);
+    }
+
+    private void chase(int i) {
+        chasers[i].chase(chaseTargets[i], nav);
+    }
+
+    //Stops an enemy walking and lets the physics engine stop simulating it until it is woken.
+    //An enemy in the air keeps falling and is only put to sleep once it has landed.
+    private void sleep(boolean[] asleep, org.jbox2d.dynamics.Body[] physics, DynamicBody body, int i) {
+        if (asleep[i]) {
+            return;
+        }
+        float vy = body.getLinearVelocity().y;
+        body.setLinearVelocity(scratch.set(0, vy));
+        if (physics[i] == null) {
+            asleep[i] = true; //Cannot tell if it is supported, but gravity still works on it
+        } else if (supported(physics[i], vy)) {
+            asleep[i] = true;
+            physics[i].setAwake(false);
+        }
+    }
+
+    //Checks whether a body is resting on something: barely moving up or down and touching another body
+    private static boolean supported(org.jbox2d.dynamics.Body physics, float vy) {
+        if (Math.abs(vy) > RESTING_SPEED) {
+            return false;
+        }
+        for (org.jbox2d.dynamics.contacts.ContactEdge edge = physics.getContactList(); edge != null; edge = edge.next) {
+            if (edge.contact.isTouching()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void wake(boolean[] asleep, org.jbox2d.dynamics.Body[] physics, int i) {
+        if (!asleep[i]) {
+            return;
+        }
+        asleep[i] = false;
+        if (physics[i] != null) {
+            physics[i].setAwake(true);
+        }
+    }
+
+    @Override
+    public void postStep(StepEvent stepEvent) {
+        // Not used
+    }
+}
@@ -2,18 +2,22 @@ package game;
 
 import city.cs.engine.*;
 import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.BodyType;
 
 /**
- * Moving platform class that moves between two points.
- * Implements StepListener to update its position every step.
- * The platform moves back and forth between startPos and endPos at a specified speed.
+ * Moving platform class that follows a path, by default back and forth between two points.
+ * Registers with its level's MovementSystem, which moves it along the path every step.
+ * Where possible the platform is made kinematic and moved by velocity, so riders are carried along.
  */
 
-public class MovingPlatform extends StaticBody implements StepListener {
-    private Vec2 startPos;
-    private Vec2 endPos;
-    private float speed;
-    private boolean forward = true;
+public class MovingPlatform extends StaticBody implements ContactRouter.Categorized {
+    private static final float STEPS_PER_SECOND = 60; //Used to convert the old per-step speeds
+
+    private final MovementSystem movement;
+    private final PlatformPath path;
+    private final float width; //Half sizes, as given to the BoxShape
+    private final float height;
+    int moverIndex = -1; //Index in the MovementSystem's arrays
 
     /**
      * Constructor to create a moving platform.
@@ -23,54 +27,114 @@ public class MovingPlatform extends StaticBody implements StepListener {
      * @param height    the height of the platform
      * @param startPos  the starting position of the platform
      * @param endPos    the ending position of the platform
-     * @param speed     the speed at which the platform moves
+     * @param speed     the distance the platform moves each step (at 60 steps per second)
      */
     //Constructor to create a moving platform
     public MovingPlatform(World world, float width, float height, Vec2 startPos, Vec2 endPos, float speed) {
+        this(world, width, height, PlatformPath.between(startPos, endPos), speed * STEPS_PER_SECOND);
+    }
+
+    /**
+     * Constructor to create a platform that follows a path.
+     *
+     * @param world     the world where the platform exists
+     * @param width     the width of the platform
+     * @param height    the height of the platform
+     * @param path      the path to follow
+     * @param speed     the speed along the path in world units per second
+     */
+    public MovingPlatform(World world, float width, float height, PlatformPath path, float speed) {
         //Call the parent constructor with a box shape
         super(world, new BoxShape(width, height));
-        this.startPos = startPos;
-        this.endPos = endPos;
-        this.speed = speed;
+        this.path = path;
+        this.width = width;
+        this.height = height;
+
+        setPosition(path.positionAt(0, new Vec2()));
 
-        setPosition(startPos);
-        world.addStepListener(this);
+        //The engine has no kinematic bodies, so switch the JBox2D body over directly if we can
+        org.jbox2d.dynamics.Body physics = PhysicsBridge.getBody(this);
+        if (physics != null) {
+            physics.setType(BodyType.KINEMATIC);
+        }
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.MOVING);
+        GameLevel.of(world).getDrawList().addBox(this, width, height);
+        movement = GameLevel.of(world).getMovementSystem();
+        movement.addPlatform(this, path, speed, physics);
     }
 
     /**
-     * Called before each physics step.
-     * Handles moving the platform towards its current target position.
-     * Once it reaches the target, it switches direction to move back.
+     * Returns how far the platform is through the current cycle of its path.
      *
-     * @param stepEvent the event triggered at each simulation step
+     * @return the distance travelled since the start of the cycle.
      */
-    @Override
-    public void preStep(StepEvent stepEvent) {
-        Vec2 current = getPosition();
-        Vec2 target = forward ? endPos : startPos;
-        Vec2 direction = target.sub(current);
-        //Check if the platform is close to the target position
-        if (direction.length() < 0.1f) {
-            forward = !forward;
-
-        } else {
-            //Normalise the direction vector and scale it by speed
-            Vec2 moveStep = direction.clone();
-            moveStep.normalize();
-            moveStep = moveStep.mul(speed);
-            setPosition(current.add(moveStep));
+    public float getPathProgress() {
+        return moverIndex < 0 ? 0 : movement.getTravelled(moverIndex);
+    }
+
+    /**
+     * Jumps the platform to a point along its path, e.g. when it is rebuilt by the ChunkManager.
+     *
+     * @param distance the distance travelled since the start of the cycle.
+     */
+    public void setPathProgress(float distance) {
+        if (moverIndex >= 0) {
+            movement.setTravelled(moverIndex, distance);
         }
     }
 
     /**
-     * Called after each physics step.
-     * Not used here, but required by the StepListener interface.
+     * Gets the path the platform follows.
+     *
+     * @return the path.
+     */
+    public PlatformPath getPath() {
+        return path;
+    }
+
+    /**
+     * Gets half the platform's width.
+     *
+     * @return the half width.
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets half the platform's height.
+     *
+     * @return the half height.
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks which way the platform is currently moving.
      *
-     * @param stepEvent the event triggered at each simulation step
+     * @return true if it is moving towards the end of its path.
      */
+    public boolean isForward() {
+        return path.isForward(getPathProgress());
+    }
+
+    //Called by the movement system to place the platform directly
+    void moveTo(Vec2 position) {
+        setPosition(position);
+    }
 
     @Override
-    public void postStep(StepEvent stepEvent) {
-        // Not used
+    public int getCategory() {
+        return ContactRouter.PLATFORM;
+    }
+
+    /**
+     * Removes the platform from the world and from the movement system.
+     */
+    @Override
+    public void destroy() {
+        movement.removePlatform(this);
+        super.destroy();
     }
 }
@@ -0,0 +1,465 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A graph of the platforms in a level that a chasing enemy can walk, jump and drop between.
+ * Each platform top is a node. Edges are worked out once from the enemy's run speed, jump speed
+ * and gravity: a jump edge exists if the arc of a jump can clear the height and cover the gap,
+ * and a drop edge if walking off the edge lands on the other platform.
+ *
+ * Paths are found with A* and cached for each (from, to) pair, storing only the first edge to take.
+ * When a disappearing platform vanishes only the cached paths through it are forgotten.
+ * Moving platforms are planned over the whole area their path covers.
+ */
+
+public class NavGraph {
+    //Edge kinds
+    public static final byte WALK = 0;
+    public static final byte JUMP = 1;
+    public static final byte DROP = 2;
+
+    private static final float STAND_HEIGHT = 0.6f; //How far above a platform top a body's centre can be and still be on it
+    private static final float HEAD_ROOM = 0.5f;    //Extra height a jump must clear above the platform top
+    private static final float FOOTING = 0.5f;      //How far onto a platform a landing must be
+    private static final float SAME_LEVEL = 0.1f;   //Tops closer than this can be walked between
+    private static final int UNKNOWN = -2;          //Path not worked out yet
+    private static final int NO_PATH = -1;
+
+    //Nodes: the platform and the part of it that can be stood on
+    private final Body[] platforms;
+    private final float[] left, right, top;
+    private final boolean[] enabled;
+    private final int nodes;
+
+    //Edges, grouped by the node they leave from (edges of node i are firstEdge[i] to firstEdge[i + 1] - 1)
+    private final int[] firstEdge;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final byte[] edgeKind;
+    private final float[] takeoffX; //Where to leave the platform
+    private final float[] landingX; //Where to aim for on the next one
+    private final float[] edgeCost; //Seconds
+    private final float runSpeed;
+
+    //Cached paths: the first edge from each node to each other node, and the entries that go through each node
+    private final int[] next;
+    private final BitSet[] usedBy;
+
+    //Search scratch space, reused for every search
+    private final float[] cost;
+    private final int[] cameFrom;
+    private final boolean[] open;
+    private final boolean[] closed;
+    private final int[] path;
+
+    private NavGraph(List<Body> bodies, float[] l, float[] r, float[] t, float runSpeed, float jumpSpeed, float gravity) {
+        nodes = bodies.size();
+        platforms = bodies.toArray(new Body[0]);
+        left = l;
+        right = r;
+        top = t;
+        this.runSpeed = runSpeed;
+        enabled = new boolean[nodes];
+        Arrays.fill(enabled, true);
+
+        //Work out the edges between every pair of platforms
+        List<float[]> edges = new ArrayList<>(); //{from, to, kind, takeoff, landing, cost}
+        firstEdge = new int[nodes + 1];
+        for (int a = 0; a < nodes; a++) {
+            firstEdge[a] = edges.size();
+            for (int b = 0; b < nodes; b++) {
+                if (a != b) {
+                    float[] edge = connect(a, b, runSpeed, jumpSpeed, gravity);
+                    if (edge != null) {
+                        edges.add(edge);
+                    }
+                }
+            }
+        }
+        firstEdge[nodes] = edges.size();
+        int count = edges.size();
+        edgeFrom = new int[count];
+        edgeTo = new int[count];
+        edgeKind = new byte[count];
+        takeoffX = new float[count];
+        landingX = new float[count];
+        edgeCost = new float[count];
+        for (int e = 0; e < count; e++) {
+            float[] edge = edges.get(e);
+            edgeFrom[e] = (int) edge[0];
+            edgeTo[e] = (int) edge[1];
+            edgeKind[e] = (byte) edge[2];
+            takeoffX[e] = edge[3];
+            landingX[e] = edge[4];
+            edgeCost[e] = edge[5];
+        }
+
+        next = new int[nodes * nodes];
+        Arrays.fill(next, UNKNOWN);
+        usedBy = new BitSet[nodes];
+        for (int i = 0; i < nodes; i++) {
+            usedBy[i] = new BitSet();
+        }
+        cost = new float[nodes];
+        cameFrom = new int[nodes];
+        open = new boolean[nodes];
+        closed = new boolean[nodes];
+        path = new int[nodes];
+    }
+
+    /**
+     * Builds the graph for a level from its platforms, disappearing platforms and moving platforms.
+     * Walls (platforms taller than they are wide) are left out.
+     *
+     * @param level     the level.
+     * @param runSpeed  the enemy's horizontal speed.
+     * @param jumpSpeed the enemy's upward speed at the start of a jump.
+     * @return the graph.
+     */
+    public static NavGraph build(GameLevel level, float runSpeed, float jumpSpeed) {
+        List<Body> bodies = new ArrayList<>();
+        List<float[]> extents = new ArrayList<>(); //{left, right, top}
+        for (StaticBody body : level.getStaticBodies()) {
+            Vec2 position = body.getPosition();
+            if (body instanceof Platform) {
+                Platform platform = (Platform) body;
+                if (platform.getHeight() <= platform.getWidth()) {
+                    bodies.add(body);
+                    extents.add(new float[]{position.x - platform.getWidth(), position.x + platform.getWidth(),
+                            position.y + platform.getHeight()});
+                }
+            } else if (body instanceof DisappearingPlatform) {
+                DisappearingPlatform platform = (DisappearingPlatform) body;
+                bodies.add(body);
+                extents.add(new float[]{position.x - platform.getWidth(), position.x + platform.getWidth(),
+                        position.y + platform.getHeight()});
+            } else if (body instanceof MovingPlatform) {
+                MovingPlatform platform = (MovingPlatform) body;
+                float[] bounds = platform.getPath().getBounds();
+                bodies.add(body);
+                extents.add(new float[]{bounds[0] - platform.getWidth(), bounds[2] + platform.getWidth(),
+                        (bounds[1] + bounds[3]) / 2 + platform.getHeight()});
+            }
+        }
+        int n = bodies.size();
+        float[] l = new float[n], r = new float[n], t = new float[n];
+        for (int i = 0; i < n; i++) {
+            l[i] = extents.get(i)[0];
+            r[i] = extents.get(i)[1];
+            t[i] = extents.get(i)[2];
+        }
+        NavGraph graph = new NavGraph(bodies, l, r, t, runSpeed, jumpSpeed, Math.abs(level.getGravity()));
+        for (int i = 0; i < n; i++) {
+            if (bodies.get(i) instanceof DisappearingPlatform) {
+                DisappearingPlatform platform = (DisappearingPlatform) bodies.get(i);
+                platform.setNavNode(graph, i);
+                graph.enabled[i] = !platform.isGone();
+            }
+        }
+        return graph;
+    }
+
+    //Finds the cheapest way from platform a onto platform b, or null if there is none
+    private float[] connect(int a, int b, float runSpeed, float jumpSpeed, float gravity) {
+        float rise = top[b] - top[a];
+        float maxRise = jumpSpeed * jumpSpeed / (2 * gravity) - HEAD_ROOM;
+        float takeoff, landing;
+        if (left[b] > right[a]) {
+            //b is to the right
+            takeoff = right[a];
+            landing = Math.min(left[b] + FOOTING, (left[b] + right[b]) / 2);
+        } else if (right[b] < left[a]) {
+            //b is to the left
+            takeoff = left[a];
+            landing = Math.max(right[b] - FOOTING, (left[b] + right[b]) / 2);
+        } else if (rise > 0) {
+            //b is above a: leave from a part of a that sticks out from under b, then come up beside it
+            if (left[a] <= left[b] - FOOTING) {
+                takeoff = left[b] - FOOTING;
+                landing = left[b] + FOOTING;
+            } else if (right[a] >= right[b] + FOOTING) {
+                takeoff = right[b] + FOOTING;
+                landing = right[b] - FOOTING;
+            } else {
+                return null;
+            }
+        } else {
+            //b is below a: walk off an end of a that b sticks out past
+            if (left[b] <= left[a] - FOOTING) {
+                takeoff = left[a];
+                landing = left[a] - FOOTING;
+            } else if (right[b] >= right[a] + FOOTING) {
+                takeoff = right[a];
+                landing = right[a] + FOOTING;
+            } else {
+                return null;
+            }
+        }
+        float across = Math.abs(landing - takeoff);
+        float walk = Math.abs((left[a] + right[a]) / 2 - takeoff) / runSpeed;
+
+        if (Math.abs(rise) <= SAME_LEVEL && across <= 2 * FOOTING) {
+            return new float[]{a, b, WALK, takeoff, landing, walk + across / runSpeed};
+        }
+        if (rise < 0) {
+            //Walking off the edge covers this much ground before landing
+            float fall = (float) Math.sqrt(2 * -rise / gravity);
+            if (runSpeed * fall >= across) {
+                return new float[]{a, b, DROP, takeoff, landing, walk + fall};
+            }
+        }
+        if (rise <= maxRise) {
+            //Time in the air until the jump comes back down to b's height
+            float flight = (jumpSpeed + (float) Math.sqrt(jumpSpeed * jumpSpeed - 2 * gravity * rise)) / gravity;
+            if (runSpeed * flight >= across) {
+                return new float[]{a, b, JUMP, takeoff, landing, walk + flight};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first edge to take to get from one platform to another.
+     * Finds the path the first time and caches it.
+     *
+     * @param from the node the enemy is on.
+     * @param to   the node it wants to reach.
+     * @return the edge, or -1 if there is no way there.
+     */
+    public int nextEdge(int from, int to) {
+        if (from == to || !enabled[from] || !enabled[to]) {
+            return -1;
+        }
+        int cached = next[from * nodes + to];
+        if (cached == UNKNOWN) {
+            search(from, to);
+            cached = next[from * nodes + to];
+        }
+        return cached;
+    }
+
+    //A* from one node to another, caching the first edge for every node on the path found
+    private void search(int from, int to) {
+        Arrays.fill(cost, Float.MAX_VALUE);
+        Arrays.fill(open, false);
+        Arrays.fill(closed, false);
+        cost[from] = 0;
+        cameFrom[from] = -1;
+        open[from] = true;
+
+        boolean found = false;
+        while (true) {
+            //There are only tens of platforms, so a scan finds the best open node quickly enough
+            int best = -1;
+            float bestScore = Float.MAX_VALUE;
+            for (int i = 0; i < nodes; i++) {
+                if (open[i]) {
+                    float score = cost[i] + estimate(i, to);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        best = i;
+                    }
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (best == to) {
+                found = true;
+                break;
+            }
+            open[best] = false;
+            closed[best] = true;
+            for (int e = firstEdge[best]; e < firstEdge[best + 1]; e++) {
+                int b = edgeTo[e];
+                if (!enabled[b] || closed[b]) {
+                    continue;
+                }
+                float c = cost[best] + edgeCost[e];
+                if (c < cost[b]) {
+                    cost[b] = c;
+                    cameFrom[b] = e;
+                    open[b] = true;
+                }
+            }
+        }
+
+        if (!found) {
+            next[from * nodes + to] = NO_PATH;
+            return;
+        }
+        //Walk back from the goal, then cache the first edge from every node on the way
+        int length = 0;
+        for (int node = to; node != from; node = edgeFrom[cameFrom[node]]) {
+            path[length++] = cameFrom[node];
+        }
+        for (int k = length - 1; k >= 0; k--) {
+            int node = edgeFrom[path[k]];
+            int entry = node * nodes + to;
+            next[entry] = path[k];
+            //The entry depends on every node from here to the goal
+            for (int j = k; j >= 0; j--) {
+                usedBy[edgeFrom[path[j]]].set(entry);
+            }
+            usedBy[to].set(entry);
+        }
+    }
+
+    //A lower bound on the time to reach a node: the horizontal gap at full run speed
+    private float estimate(int from, int to) {
+        float gap = Math.max(0, Math.max(left[to] - right[from], left[from] - right[to]));
+        return gap / runSpeed;
+    }
+
+    /**
+     * Turns a platform on or off, e.g. when a disappearing platform vanishes or is restored.
+     * Turning one off only forgets the cached paths that went through it.
+     *
+     * @param node    the platform's node.
+     * @param enabled false once it has gone.
+     */
+    void setEnabled(int node, boolean enabled) {
+        if (this.enabled[node] == enabled) {
+            return;
+        }
+        this.enabled[node] = enabled;
+        if (enabled) {
+            //A platform coming back can make any path shorter (this only happens on a rewind or load)
+            clearCache();
+            return;
+        }
+        BitSet entries = usedBy[node];
+        for (int entry = entries.nextSetBit(0); entry >= 0; entry = entries.nextSetBit(entry + 1)) {
+            next[entry] = UNKNOWN;
+        }
+        entries.clear();
+    }
+
+    /**
+     * Forgets every cached path.
+     */
+    void clearCache() {
+        Arrays.fill(next, UNKNOWN);
+        for (BitSet entries : usedBy) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Finds the platform a body is standing on.
+     *
+     * @param x the body's x-position.
+     * @param y the body's y-position (its centre).
+     * @param hint a node to check first, e.g. the one the body was on last step, or -1.
+     * @return the node, or -1 if the body is in the air.
+     */
+    public int standingOn(float x, float y, int hint) {
+        if (hint >= 0 && stands(hint, x, y)) {
+            return hint;
+        }
+        for (int i = 0; i < nodes; i++) {
+            if (stands(i, x, y)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean stands(int i, float x, float y) {
+        if (!enabled[i]) {
+            return false;
+        }
+        float l = left[i], r = right[i], t = top[i];
+        if (platforms[i] instanceof MovingPlatform) {
+            //Use where the platform is now rather than everywhere it goes
+            MovingPlatform platform = (MovingPlatform) platforms[i];
+            Vec2 position = platform.getPosition();
+            l = position.x - platform.getWidth();
+            r = position.x + platform.getWidth();
+            t = position.y + platform.getHeight();
+        }
+        return x >= l && x <= r && y >= t && y - t <= STAND_HEIGHT;
+    }
+
+    /**
+     * Finds the highest platform below a point, e.g. the one a jumping player will land on.
+     *
+     * @param x the x-position.
+     * @param y the y-position.
+     * @return the node, or -1 if there is nothing below.
+     */
+    public int below(float x, float y) {
+        int best = -1;
+        for (int i = 0; i < nodes; i++) {
+            if (enabled[i] && x >= left[i] && x <= right[i] && top[i] <= y && (best < 0 || top[i] > top[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the kind of an edge.
+     *
+     * @param edge the edge.
+     * @return WALK, JUMP or DROP.
+     */
+    public byte getKind(int edge) {
+        return edgeKind[edge];
+    }
+
+    /**
+     * Gets the x-position to leave the platform from.
+     *
+     * @param edge the edge.
+     * @return the take-off x.
+     */
+    public float getTakeoffX(int edge) {
+        return takeoffX[edge];
+    }
+
+    /**
+     * Gets the x-position to aim for on the next platform.
+     *
+     * @param edge the edge.
+     * @return the landing x.
+     */
+    public float getLandingX(int edge) {
+        return landingX[edge];
+    }
+
+    /**
+     * Gets the node an edge leads to.
+     *
+     * @param edge the edge.
+     * @return the node.
+     */
+    public int getTarget(int edge) {
+        return edgeTo[edge];
+    }
+
+    /**
+     * Returns the number of platforms in the graph.
+     *
+     * @return the node count.
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of ways between platforms.
+     *
+     * @return the edge count.
+     */
+    public int getEdgeCount() {
+        return edgeTo.length;
+    }
+}
@@ -5,16 +5,15 @@ import org.jbox2d.common.Vec2;
 
 /**
  * Patrolling enemy class that moves back and forth between two points.
- * Implements StepListener to update its position every step.
+ * Registers with its level's MovementSystem, which updates its velocity every step.
  * The enemy moves left and right between leftLimit and rightLimit at a specified speed.
  */
 
 // Enemy that patrols horizontally between two points
-public class PatrollingEnemy extends DynamicBody implements StepListener {
+public class PatrollingEnemy extends DynamicBody implements ContactRouter.Categorized {
     private static final float SPEED = 5f;
-    private float leftLimit;
-    private float rightLimit;
-    private boolean movingRight = true;
+    private final MovementSystem movement;
+    int moverIndex = -1; //Index in the MovementSystem's arrays
 
     /**
      * Constructor for the patrolling enemy.
@@ -34,50 +33,45 @@ public class PatrollingEnemy extends DynamicBody implements StepListener {
         //Set the initial position of the enemy
         setPosition(new Vec2(x, y));
         //Add a box shape for collision detection
-        addImage(new BodyImage("data/enemy-new.png", 0.5f));
-        //Set the limits for patrolling
-        this.leftLimit = leftLimit;
-        this.rightLimit = rightLimit;
-        //Add this enemy to the physics world
-        world.addStepListener(this);
+        addImage(SpriteRegistry.get(SpriteRegistry.ENEMY, 0.5f));
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.PATROLLER);
+        GameLevel.of(world).getDrawList().addSprite(this, SpriteRegistry.ENEMY, 0.5f);
+        //Patrol between the limits, driven by the world's movement system
+        movement = GameLevel.of(world).getMovementSystem();
+        movement.addPatroller(this, leftLimit, rightLimit, SPEED);
     }
 
     /**
-     * Called before each physics step.
-     * Handles the enemy movement logic to patrol between the two limits.
+     * Checks which way the enemy is currently patrolling.
      *
-     * @param e the StepEvent triggered each simulation step
+     * @return true if the enemy is moving right.
      */
-
-    @Override
-
-
-    public void preStep(StepEvent e) {
-        Vec2 pos = getPosition();
-
-        //Check if the enemy is moving right or left and update its velocity accordingly
-        if (movingRight) {
-            setLinearVelocity(new Vec2(SPEED, 0));
-            if (pos.x >= rightLimit) {
-                movingRight = false;
-            }
-        } else {
-            setLinearVelocity(new Vec2(-SPEED, 0));
-            if (pos.x <= leftLimit) {
-                movingRight = true;
-            }
-        }
+    public boolean isMovingRight() {
+        return moverIndex < 0 || movement.isMovingRight(moverIndex);
     }
 
     /**
-     * Called after each physics step.
-     * Not used here, but required by the StepListener interface.
+     * Sets which way the enemy patrols, e.g. when it is rebuilt by the ChunkManager.
      *
-     * @param e the StepEvent triggered each simulation step
+     * @param movingRight true to move right.
      */
+    public void setMovingRight(boolean movingRight) {
+        if (moverIndex >= 0) {
+            movement.setMovingRight(moverIndex, movingRight);
+        }
+    }
+
+    @Override
+    public int getCategory() {
+        return ContactRouter.ENEMY;
+    }
 
+    /**
+     * Removes the enemy from the world and from the movement system.
+     */
     @Override
-    public void postStep(StepEvent e) {
-        // Not needed
+    public void destroy() {
+        movement.removePatroller(this);
+        super.destroy();
     }
 }
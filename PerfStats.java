@@ -0,0 +1,106 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects simple timing numbers from around the game (paint times, load times and so on).
+ * Each named stat keeps a count, total and maximum, in nanoseconds or in bytes allocated.
+ * The report is printed when the game exits so runs can be compared before and after a change.
+ */
+
+public final class PerfStats {
+    //Fields
+    private static final Map<String, Stat> stats = new TreeMap<>();
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private PerfStats() {
+    }
+
+    /**
+     * Records one sample for the named stat.
+     *
+     * @param name  the name of the stat, e.g. "paint.background".
+     * @param nanos the measured time in nanoseconds.
+     */
+    public static void record(String name, long nanos) {
+        add(name, nanos, false);
+    }
+
+    /**
+     * Records one allocation sample for the named stat.
+     *
+     * @param name  the name of the stat, e.g. "paint.hud".
+     * @param bytes the number of bytes allocated.
+     */
+    public static void recordBytes(String name, long bytes) {
+        add(name, bytes, true);
+    }
+
+    /**
+     * Returns how many bytes the current thread has allocated so far.
+     * Take the difference of two calls to measure the allocation of a piece of code.
+     *
+     * @return the allocated bytes, or -1 if the JVM cannot measure it.
+     */
+    public static long threadAllocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void add(String name, long value, boolean bytes) {
+        synchronized (stats) {
+            Stat stat = stats.get(name);
+            if (stat == null) {
+                stat = new Stat();
+                stat.bytes = bytes;
+                stats.put(name, stat);
+            }
+            stat.count++;
+            stat.total += value;
+            stat.max = Math.max(stat.max, value);
+        }
+    }
+
+    /**
+     * Builds a readable report of every stat recorded so far.
+     *
+     * @return one line per stat with count, average and maximum (microseconds or bytes).
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder("Performance stats:\n");
+        synchronized (stats) {
+            for (Map.Entry<String, Stat> entry : stats.entrySet()) {
+                Stat stat = entry.getValue();
+                if (stat.bytes) {
+                    sb.append(String.format("  %-28s n=%-8d avg=%10.1f B   max=%10d B%n",
+                            entry.getKey(), stat.count, (double) stat.total / stat.count, stat.max));
+                } else {
+                    sb.append(String.format("  %-28s n=%-8d avg=%10.1f us  max=%10.1f us%n",
+                            entry.getKey(), stat.count,
+                            stat.total / 1000.0 / stat.count, stat.max / 1000.0));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints the report to the console.
+     */
+    public static void printReport() {
+        System.out.println(report());
+    }
+
+    //Running totals for one stat
+    private static class Stat {
+        long count;
+        long total;
+        long max;
+        boolean bytes;
+    }
+}
@@ -0,0 +1,81 @@
+package game;
+
+import city.cs.engine.World;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives access to the JBox2D objects that city.cs.engine wraps.
+ * The engine does not expose features such as kinematic bodies, sleeping or collision filters,
+ * so this finds the underlying JBox2D object by looking for a field of the right type.
+ * Every method returns null if the object cannot be found, and callers fall back to the
+ * plain engine API.
+ */
+
+public final class PhysicsBridge {
+    private static final Map<Class<?>, Field> bodyFields = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Field> worldFields = new ConcurrentHashMap<>();
+    private static final Field MISSING;
+
+    static {
+        try {
+            MISSING = PhysicsBridge.class.getDeclaredField("MISSING");
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private PhysicsBridge() {
+    }
+
+    /**
+     * Returns the JBox2D body behind an engine body.
+     *
+     * @param body the engine body.
+     * @return the JBox2D body, or null if it cannot be reached.
+     */
+    public static org.jbox2d.dynamics.Body getBody(city.cs.engine.Body body) {
+        return (org.jbox2d.dynamics.Body) read(body, bodyFields, org.jbox2d.dynamics.Body.class);
+    }
+
+    /**
+     * Returns the JBox2D world behind an engine world.
+     *
+     * @param world the engine world.
+     * @return the JBox2D world, or null if it cannot be reached.
+     */
+    public static org.jbox2d.dynamics.World getWorld(World world) {
+        return (org.jbox2d.dynamics.World) read(world, worldFields, org.jbox2d.dynamics.World.class);
+    }
+
+    //Finds (once per class) and reads the first field holding the wanted type
+    private static Object read(Object owner, Map<Class<?>, Field> cache, Class<?> type) {
+        Field field = cache.computeIfAbsent(owner.getClass(), c -> find(c, type));
+        if (field == MISSING) {
+            return null;
+        }
+        try {
+            return field.get(owner);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field find(Class<?> c, Class<?> type) {
+        for (; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (type.isAssignableFrom(field.getType())) {
+                    try {
+                        field.setAccessible(true);
+                        return field;
+                    } catch (RuntimeException e) {
+                        return MISSING;
+                    }
+                }
+            }
+        }
+        return MISSING;
+    }
+}
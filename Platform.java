@@ -10,12 +10,40 @@ import org.jbox2d.common.Vec2;
  */
 
 //Platform class to create platforms in the game
-public class Platform extends StaticBody {
+public class Platform extends StaticBody implements ContactRouter.Categorized {
+    private final float width; //Half sizes, as given to the BoxShape
+    private final float height;
+
     public Platform(World world, float width, float height, float x, float y) {
         super(world, new BoxShape(width, height));
+        this.width = width;
+        this.height = height;
 
         setPosition(new Vec2(x, y));
+        //Tall platforms are walls, which coins and enemies treat differently
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.groupOf(this));
+        GameLevel.of(world).getDrawList().addBox(this, width, height);
+    }
+
+    /**
+     * Gets half the platform's width.
+     * @return the half width.
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets half the platform's height.
+     * @return the half height.
+     */
+    public float getHeight() {
+        return height;
+    }
 
+    @Override
+    public int getCategory() {
+        return ContactRouter.PLATFORM;
     }
 }
 
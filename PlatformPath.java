@@ -0,0 +1,211 @@
+package game;
+
+import org.jbox2d.common.Vec2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A path for a moving platform through any number of waypoints.
+ * Segments can be straight lines or a smooth Catmull-Rom curve. The path is sampled once, when it
+ * is created, into a table of points spaced evenly by distance, so finding the position at any
+ * distance along it is a single table lookup no matter how many waypoints it has.
+ */
+
+public class PlatformPath {
+    private static final float SPACING = 0.05f; //Distance between table points
+    private static final int SAMPLES_PER_SEGMENT = 64; //Used to measure curved segments
+
+    /**
+     * What happens when the platform reaches the end of the path.
+     */
+    public enum Mode {
+        PING_PONG, //Go back along the path to the start
+        LOOP       //Carry on from the last waypoint back to the first
+    }
+
+    /**
+     * How the platform speeds up and slows down along each run of the path.
+     */
+    public enum Easing {
+        LINEAR,
+        SMOOTH, //Eases in and out (smoothstep)
+        SINE;   //Eases in and out along a sine curve
+
+        float apply(float t) {
+            switch (this) {
+                case SMOOTH:
+                    return t * t * (3 - 2 * t);
+                case SINE:
+                    return (float) (0.5 - 0.5 * Math.cos(Math.PI * t));
+                default:
+                    return t;
+            }
+        }
+    }
+
+    //Fields
+    private final Mode mode;
+    private final Easing easing;
+    private final float length; //Length of one run from the first point to the last
+    private final float[] xs; //Evenly spaced points along the path
+    private final float[] ys;
+    private final float spacing;
+
+    /**
+     * Creates a path through the given waypoints.
+     *
+     * @param waypoints the points to pass through (at least two).
+     * @param smooth    true for a Catmull-Rom curve, false for straight lines.
+     * @param mode      what to do at the end of the path.
+     * @param easing    how to speed up and slow down along each run.
+     */
+    public PlatformPath(List<Vec2> waypoints, boolean smooth, Mode mode, Easing easing) {
+        if (waypoints.size() < 2) {
+            throw new IllegalArgumentException("A path needs at least two waypoints");
+        }
+        this.mode = mode;
+        this.easing = easing;
+
+        List<Vec2> points = new ArrayList<>(waypoints);
+        if (mode == Mode.LOOP) {
+            points.add(points.get(0)); //Close the loop
+        }
+
+        //Sample the path finely and measure how far along each sample is
+        int segments = points.size() - 1;
+        int fine = segments * (smooth ? SAMPLES_PER_SEGMENT : 1) + 1;
+        float[] fx = new float[fine];
+        float[] fy = new float[fine];
+        float[] distance = new float[fine];
+        int n = 0;
+        for (int s = 0; s < segments; s++) {
+            int steps = smooth ? SAMPLES_PER_SEGMENT : 1;
+            for (int k = (s == 0 ? 0 : 1); k <= steps; k++) {
+                float t = (float) k / steps;
+                Vec2 p = smooth ? catmullRom(points, s, t, mode == Mode.LOOP) : lerp(points.get(s), points.get(s + 1), t);
+                fx[n] = p.x;
+                fy[n] = p.y;
+                if (n > 0) {
+                    float dx = fx[n] - fx[n - 1], dy = fy[n] - fy[n - 1];
+                    distance[n] = distance[n - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+                }
+                n++;
+            }
+        }
+        length = distance[n - 1];
+
+        //Resample into a table of points spaced evenly by distance
+        int count = Math.max(2, (int) Math.ceil(length / SPACING) + 1);
+        spacing = length / (count - 1);
+        xs = new float[count];
+        ys = new float[count];
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            float d = i * spacing;
+            while (j < n - 2 && distance[j + 1] < d) {
+                j++;
+            }
+            float span = distance[j + 1] - distance[j];
+            float t = span > 0 ? (d - distance[j]) / span : 0;
+            xs[i] = fx[j] + (fx[j + 1] - fx[j]) * t;
+            ys[i] = fy[j] + (fy[j + 1] - fy[j]) * t;
+        }
+    }
+
+    /**
+     * Creates a straight, evenly paced path that goes back and forth between two points.
+     *
+     * @param start the first point.
+     * @param end   the second point.
+     * @return the path.
+     */
+    public static PlatformPath between(Vec2 start, Vec2 end) {
+        List<Vec2> points = new ArrayList<>();
+        points.add(start);
+        points.add(end);
+        return new PlatformPath(points, false, Mode.PING_PONG, Easing.LINEAR);
+    }
+
+    /**
+     * Returns the distance travelled in one full cycle (there and back for ping-pong).
+     *
+     * @return the cycle length.
+     */
+    public float getCycleLength() {
+        return mode == Mode.PING_PONG ? 2 * length : length;
+    }
+
+    /**
+     * Finds the position at a distance travelled along the path, taking the mode and easing into account.
+     *
+     * @param travelled the distance travelled since the start, in [0, getCycleLength()).
+     * @param out       set to the position.
+     * @return out, for convenience.
+     */
+    public Vec2 positionAt(float travelled, Vec2 out) {
+        if (spacing == 0) {
+            return out.set(xs[0], ys[0]); //Every waypoint is the same point, so the platform stays there
+        }
+        float along;
+        if (mode == Mode.PING_PONG) {
+            float leg = travelled <= length ? travelled : 2 * length - travelled;
+            along = easing.apply(clamp(leg / length)) * length;
+        } else {
+            along = easing.apply(clamp(travelled / length)) * length;
+        }
+        float index = along / spacing;
+        int i = Math.min((int) index, xs.length - 2);
+        float t = index - i;
+        return out.set(xs[i] + (xs[i + 1] - xs[i]) * t, ys[i] + (ys[i + 1] - ys[i]) * t);
+    }
+
+    /**
+     * Finds the box the path stays inside.
+     *
+     * @return {minX, minY, maxX, maxY}.
+     */
+    public float[] getBounds() {
+        float[] bounds = {xs[0], ys[0], xs[0], ys[0]};
+        for (int i = 1; i < xs.length; i++) {
+            bounds[0] = Math.min(bounds[0], xs[i]);
+            bounds[1] = Math.min(bounds[1], ys[i]);
+            bounds[2] = Math.max(bounds[2], xs[i]);
+            bounds[3] = Math.max(bounds[3], ys[i]);
+        }
+        return bounds;
+    }
+
+    /**
+     * Checks whether a point in the cycle is on the way out (towards the last waypoint).
+     *
+     * @param travelled the distance travelled in the current cycle.
+     * @return true if moving towards the end of the path.
+     */
+    public boolean isForward(float travelled) {
+        return mode == Mode.LOOP || travelled <= length;
+    }
+
+    private static float clamp(float t) {
+        return t < 0 ? 0 : (t > 1 ? 1 : t);
+    }
+
+    private static Vec2 lerp(Vec2 a, Vec2 b, float t) {
+        return new Vec2(a.x + (b.x - a.x) * t, a.y + (b.y - a.y) * t);
+    }
+
+    //Uniform Catmull-Rom curve between points s and s+1
+    private static Vec2 catmullRom(List<Vec2> points, int s, float t, boolean loop) {
+        int last = points.size() - 1;
+        Vec2 p1 = points.get(s);
+        Vec2 p2 = points.get(s + 1);
+        Vec2 p0 = s > 0 ? points.get(s - 1) : (loop ? points.get(last - 1) : p1);
+        Vec2 p3 = s + 2 <= last ? points.get(s + 2) : (loop ? points.get(1) : p2);
+        float t2 = t * t, t3 = t2 * t;
+        float x = 0.5f * (2 * p1.x + (-p0.x + p2.x) * t + (2 * p0.x - 5 * p1.x + 4 * p2.x - p3.x) * t2
+                + (-p0.x + 3 * p1.x - 3 * p2.x + p3.x) * t3);
+        float y = 0.5f * (2 * p1.y + (-p0.y + p2.y) * t + (2 * p0.y - 5 * p1.y + 4 * p2.y - p3.y) * t2
+                + (-p0.y + 3 * p1.y - 3 * p2.y + p3.y) * t3);
+        return new Vec2(x, y);
+    }
+}
@@ -7,25 +7,53 @@ import java.awt.event.KeyEvent;
 
 /**
  * PlayerControls class to handle player movement and jumping.
- * Implements KeyAdapter to listen for key events.
- * Uses a collision listener to detect when the player is on the ground.
+ * Key events are queued and then applied once per step, at the start of the physics step.
+ * Counts the player's contacts with platforms, through the level's ContactRouter, to tell when they are on the ground.
  */
 
 //PlayerControls class to handle player movement
-public class PlayerControls extends KeyAdapter {
+public class PlayerControls extends KeyAdapter implements StepListener {
+    //Input state bits (one input word is applied per step, and is what gets recorded)
+    static final int LEFT = 1;
+    static final int RIGHT = 2;
+    static final int JUMP = 4;
+    static final int JUMP_PRESSED = 8; //Jump went down during this step
+
+    private static final float RUN_SPEED = 10;
+    static final float JUMP_IMPULSE = 3; //Also used by chasing enemies
+    private static final int JUMP_BUFFER_STEPS = 6; //A jump pressed this many steps before landing still happens
+    private static final int COYOTE_STEPS = 6; //A jump this many steps after leaving the ground still works
+
    //Fields
     private DynamicBody student;
     private boolean isJumping;
-    private boolean isGrounded;
+    private final ContactRouter router;
+    private final ContactRouter.Handler landed = (self, other) -> isJumping = false;
+    private final InputQueue queue = new InputQueue(64);
+    private final InputQueue.Handler handler = this::handle; //Created once so draining does not allocate
+    private final Vec2 velocity = new Vec2();
+    private int held = 0; //Bits for the keys currently held down
+    private int pressed = 0; //Keys that went down since the last step
+    private InputSource source; //Replaces the keyboard when replaying, or null
+    private InputRecorder recorder; //Records each step's input, or null
+    private boolean quiet = false; //No sounds, e.g. in a headless replay
+    private long step = 0;
+    private long jumpPressedStep = Long.MIN_VALUE / 2;
+    private long supportedStep = Long.MIN_VALUE / 2; //Last step the player was standing on something
+    private boolean wasRunning = false;
     //Sound effect for jumping
-    private static SoundClip jumpSound;
+    private static final String JUMP_SOUND = "data/jump2.wav";  // Loaded by the AssetManager
 
-    static {
-        try {
-            jumpSound = new SoundClip("data/jump2.wav");  // Make sure the sound file is in your data folder!
-        } catch (Exception e) {
-            System.out.println("Error loading jump sound: " + e);
-        }
+    /**
+     * Supplies the input for each step instead of the keyboard, e.g. a recorded replay.
+     */
+    public interface InputSource {
+        /**
+         * Returns the input for the next step.
+         *
+         * @return the input bits (LEFT, RIGHT, JUMP and JUMP_PRESSED).
+         */
+        int nextInput();
     }
 
     //Constructor
@@ -33,73 +61,160 @@ public class PlayerControls extends KeyAdapter {
         //Initialise fields
         this.student = student;
         this.isJumping = false; //Track the jump state
-        this.isGrounded = false; //Track if player is on the ground
-        addCollisionListener(); //Add collision listener to detect when the player hits the ground
+        //Touching a platform again ends a jump
+        router = GameLevel.of(student.getWorld()).getContactRouter();
+        router.track(student, ContactRouter.PLAYER);
+        router.onBegin(ContactRouter.PLAYER, ContactRouter.PLATFORM, landed);
+        router.onBegin(ContactRouter.PLAYER, ContactRouter.FRAGILE, landed);
+        student.getWorld().addStepListener(this);
     }
 
     /**
      * Called when a key is pressed.
-     * Handles player movement (left/right) and jumping.
+     * Queues the key so it is applied at the start of the next step.
      *
      * @param e the key event triggered when a key is pressed
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        //Move left
-        if (e.getKeyCode() == KeyEvent.VK_A) {
-            student.setLinearVelocity(new Vec2(-10, student.getLinearVelocity().y)); // Moves sprite to the left
+        queue.offer(e.getKeyCode(), true, System.nanoTime());
+    }
+
+    /**
+     * Called when a key is released.
+     * Queues the key so it is applied at the start of the next step.
+     *
+     * @param e the key event triggered when a key is released
+     */
+    @Override
+    public void keyReleased(KeyEvent e) {
+        queue.offer(e.getKeyCode(), false, System.nanoTime());
+    }
+
+    /**
+     * Applies the queued keys: moves left/right while A or D is held and jumps with W.
+     *
+     * @param stepEvent the event triggered at each simulation step
+     */
+    @Override
+    public void preStep(StepEvent stepEvent) {
+        step++;
+        int input;
+        if (source != null) {
+            input = source.nextInput();
+        } else {
+            pressed = 0;
+            queue.drain(handler);
+            input = held | pressed;
+        }
+        if (recorder != null) {
+            recorder.record(input);
+        }
+        applyInput(input);
+    }
+
+    //Moves and jumps for one step's input
+    private void applyInput(int input) {
+        held = input & (LEFT | RIGHT | JUMP);
+        if ((input & JUMP_PRESSED) != 0) {
+            jumpPressedStep = step;
         }
-        //Move right
-        if (e.getKeyCode() == KeyEvent.VK_D) {
-            student.setLinearVelocity(new Vec2(10, student.getLinearVelocity().y)); // Moves sprite to the right
+
+        //Remember when the player was last standing on something, for coyote time
+        if (!isJumping && isGrounded()) {
+            supportedStep = step;
         }
-        //Jump if not already jumping and on the ground
-        if (e.getKeyCode() == KeyEvent.VK_W && !isJumping && isGrounded) {
+
+        //Move left or right while a key is held, and stop once when both are let go
+        int direction = ((held & RIGHT) != 0 ? 1 : 0) - ((held & LEFT) != 0 ? 1 : 0);
+        if (direction != 0 || wasRunning) {
+            Vec2 current = student.getLinearVelocity();
+            if (current.x != direction * RUN_SPEED) {
+                student.setLinearVelocity(velocity.set(direction * RUN_SPEED, current.y));
+            }
+        }
+        wasRunning = direction != 0;
+
+        //Jump if it was pressed recently and the player was on the ground recently
+        if (step - jumpPressedStep <= JUMP_BUFFER_STEPS && step - supportedStep <= COYOTE_STEPS && !isJumping) {
             //Apply an impulse to the student to make it jump
-            student.applyImpulse(new Vec2(0, 3));
+            student.applyImpulse(velocity.set(0, JUMP_IMPULSE));
             //Set the jump state to true
             isJumping = true;
+            jumpPressedStep = Long.MIN_VALUE / 2;
+            SoundClip jumpSound = quiet ? null : AssetManager.getSound(JUMP_SOUND);
             if (jumpSound != null) {
                 //Play the jump sound
                 jumpSound.play();
             }
         }
     }
+
+    @Override
+    public void postStep(StepEvent stepEvent) {
+        // Not used
+    }
+
+    //Turns one queued key event into the held-keys bitmask
+    private void handle(int keyCode, boolean pressed, long nanos) {
+        int bit = keyCode == KeyEvent.VK_A ? LEFT : keyCode == KeyEvent.VK_D ? RIGHT : keyCode == KeyEvent.VK_W ? JUMP : 0;
+        if (bit == 0) {
+            return;
+        }
+        if (pressed) {
+            //Key auto-repeat sends more presses while held, which change nothing
+            if ((held & bit) == 0 && bit == JUMP) {
+                this.pressed |= JUMP_PRESSED;
+            }
+            held |= bit;
+        } else {
+            held &= ~bit;
+        }
+        PerfStats.record("input.latency", System.nanoTime() - nanos);
+    }
+
     /**
-     * Called when a key is released.
-     * Stops the horizontal movement when left or right key is released.
+     * Takes input from a source instead of the keyboard, e.g. to replay a recording.
      *
-     * @param e the key event triggered when a key is released
+     * @param source the input source, or null to go back to the keyboard.
      */
-    @Override
-    public void keyReleased(KeyEvent e) {
-        //Stops movement when the A or D key is released
-        if (e.getKeyCode() == KeyEvent.VK_A || e.getKeyCode() == KeyEvent.VK_D) {
-            student.setLinearVelocity(new Vec2(0, student.getLinearVelocity().y)); // Stops horizontal movement
-        }
+    public void setInputSource(InputSource source) {
+        this.source = source;
     }
 
     /**
-     * Adds a collision listener to the player.
-     * Detects when the player is touching platforms so that jumping is only possible when grounded.
+     * Records the input applied each step.
+     *
+     * @param recorder the recorder, or null to stop recording.
+     */
+    public void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Turns the jump sound off or on.
+     *
+     * @param quiet true to play no sounds.
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Stops reading input and listening for collisions, e.g. when new controls replace these.
+     */
+    public void detach() {
+        student.getWorld().removeStepListener(this);
+        router.remove(landed);
+    }
+
+    /**
+     * Checks whether the player is touching any platform (walls count, so the player can wall jump).
+     *
+     * @return true while at least one contact with a platform is active.
      */
-    private void addCollisionListener() {
-        student.addCollisionListener(new CollisionListener() {
-            @Override
-            public void collide(CollisionEvent e) {
-                //Check if the player is colliding with a platform, moving platform or disappearing platform
-                if (e.getOtherBody() instanceof Platform ||
-                        //
-                        e.getOtherBody() instanceof MovingPlatform ||
-                        e.getOtherBody() instanceof DisappearingPlatform) {
-                    //If the player is colliding with a platform, set isGrounded to true
-                    isGrounded = true;
-                    //If the player is not jumping, set isJumping to false
-                    isJumping = false;
-                }
-                }
-
-        });
+    public boolean isGrounded() {
+        return router.countContacts(student, ContactRouter.PLATFORM) + router.countContacts(student, ContactRouter.FRAGILE) > 0;
     }
 
     /**
@@ -107,7 +222,7 @@ public class PlayerControls extends KeyAdapter {
      * If not grounded, marks the player as jumping.
      */
     public void checkForGrounded() {
-        if (!isGrounded) {
+        if (!isGrounded()) {
             isJumping = true;  //Start the jump if not grounded
         }
     }
@@ -0,0 +1,139 @@
+package game;
+
+import city.cs.engine.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays a recorded run back without a window, stepping the level as fast as it will go.
+ * Checks that the run ends in exactly the state that was recorded, to reproduce bug reports
+ * and to catch changes that alter how the game plays. Exits with status 1 if a replay differs.
+ * Run with: java game.ReplayDriver replay.rpl [times]
+ */
+
+public class ReplayDriver {
+    //Fields
+    private final InputLog log;
+    private GameLevel level;
+    private GameRules rules;
+    private boolean ended;
+    private long endHash;
+    private int steps;
+
+    /**
+     * Constructor for the replay driver.
+     *
+     * @param log the recorded run.
+     */
+    public ReplayDriver(InputLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Plays the run once on a freshly built level.
+     *
+     * @return true if the step count, state hash, score and health all match the recording.
+     */
+    public boolean run() {
+        level = GameLevel.create(log.getLevelName());
+        DynamicBody student = level.getStudent();
+        ended = false;
+        steps = 0;
+
+        //Same listener order as the game: controls, then streaming, then the rules
+        PlayerControls controls = new PlayerControls(student);
+        controls.setInputSource(log.player());
+        controls.setQuiet(true);
+        if (level.getChunkManager() != null) {
+            level.addStepListener(new StepListener() {
+                @Override
+                public void preStep(StepEvent stepEvent) {
+                    //The game's camera is centred on the player
+                    level.getChunkManager().update(student.getPosition().y);
+                }
+
+                @Override
+                public void postStep(StepEvent stepEvent) {
+                }
+            });
+        }
+        rules = new GameRules(new GameRules.Listener() {
+            @Override
+            public void died() {
+                end();
+            }
+
+            @Override
+            public void won() {
+                end();
+            }
+
+            @Override
+            public void reachedExit(GameLevel exited) {
+                end();
+            }
+        });
+        rules.attach(level);
+
+        while (!ended && steps < log.getSteps()) {
+            level.oneStep();
+            steps++;
+        }
+        if (!ended) {
+            endHash = InputLog.hash(level, rules);
+        }
+        return steps == log.getSteps() && endHash == log.getFinalHash()
+                && rules.getScore() == log.getFinalScore() && rules.getHealth() == log.getFinalHealth();
+    }
+
+    //The level ended the same way the recording did, so take the hash at the same point
+    private void end() {
+        if (!ended) {
+            ended = true;
+            endHash = InputLog.hash(level, rules);
+        }
+    }
+
+    /**
+     * Describes how the last run compared with the recording.
+     *
+     * @return the steps, hash, score and health, replayed and recorded.
+     */
+    public String describe() {
+        return String.format("steps %d/%d, hash %016x/%016x, score %d/%d, health %d/%d",
+                steps, log.getSteps(), endHash, log.getFinalHash(),
+                rules.getScore(), log.getFinalScore(), rules.getHealth(), log.getFinalHealth());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java game.ReplayDriver replay.rpl [times]");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        InputLog log = InputLog.read(Paths.get(args[0]));
+        int times = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        System.out.println("Replaying " + log.getLevelName() + " (" + log.getSteps() + " steps, seed " + log.getSeed() + ")");
+
+        ReplayDriver driver = new ReplayDriver(log);
+        int failures = 0;
+        long totalSteps = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            long runStart = System.nanoTime();
+            boolean matched = driver.run();
+            PerfStats.record("replay.run", System.nanoTime() - runStart);
+            totalSteps += driver.steps;
+            if (!matched) {
+                failures++;
+                System.out.println("Run " + (i + 1) + " differs: " + driver.describe());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double stepsPerSecond = totalSteps / seconds;
+        System.out.printf("%d/%d runs matched, %.0f steps/s (%.0fx real time)%n",
+                times - failures, times, stepsPerSecond, stepsPerSecond / 60);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,235 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+/**
+ * Records the last few seconds of a level, one frame per step, so time can be run backwards.
+ * All the memory is allocated up front: each frame holds a fixed number of body records in flat
+ * arrays, and once the buffer is full the oldest frame is overwritten. Recording a frame only
+ * copies numbers, so it creates no garbage.
+ * Each body record holds its position, velocity, one extra value (a moving platform's progress
+ * or a disappearing platform's flicker count) and flags (enabled, patrolling right, gone).
+ */
+
+public class RewindBuffer {
+    //Record flags
+    private static final byte ENABLED = 1; //Coin not collected / platform not gone
+    private static final byte RIGHT = 2;   //Patroller heading right
+
+    //Fields
+    private final int capacity; //Frames
+    private final int maxBodies;
+    private final float[] x, y, vx, vy, extra; //capacity * maxBodies records
+    private final byte[] flags;
+    private final int[] frameScore, frameHealth, frameBodies;
+    private final Body[] tracked; //The bodies being recorded, in record order
+    private int bodyCount = 0;
+    private GameLevel level;
+    private int newest = -1; //Index of the newest frame
+    private int size = 0;
+    private int restoredScore, restoredHealth;
+    private final Vec2 scratch = new Vec2();
+
+    /**
+     * Constructor for the rewind buffer.
+     *
+     * @param frames    the number of steps to keep (e.g. 600 for ten seconds).
+     * @param maxBodies the most bodies to record; any more in a level are not rewound.
+     */
+    public RewindBuffer(int frames, int maxBodies) {
+        capacity = frames;
+        this.maxBodies = maxBodies;
+        int records = frames * maxBodies;
+        x = new float[records];
+        y = new float[records];
+        vx = new float[records];
+        vy = new float[records];
+        extra = new float[records];
+        flags = new byte[records];
+        frameScore = new int[frames];
+        frameHealth = new int[frames];
+        frameBodies = new int[frames];
+        tracked = new Body[maxBodies];
+    }
+
+    /**
+     * Starts recording a level, forgetting anything recorded before.
+     * Call again whenever bodies are added other than by rewinding (e.g. after a snapshot restore).
+     *
+     * @param level the level to record.
+     */
+    public void attach(GameLevel level) {
+        this.level = level;
+        bodyCount = 0;
+        newest = -1;
+        size = 0;
+        for (DynamicBody body : level.getDynamicBodies()) {
+            track(body);
+        }
+        for (StaticBody body : level.getStaticBodies()) {
+            if (body instanceof MovingPlatform || body instanceof DisappearingPlatform || body instanceof Collectible) {
+                track(body);
+            }
+        }
+        for (int i = bodyCount; i < maxBodies; i++) {
+            tracked[i] = null;
+        }
+    }
+
+    /**
+     * Stops recording, e.g. when the game moves to a level that cannot be rewound.
+     */
+    public void detach() {
+        level = null;
+        newest = -1;
+        size = 0;
+        for (int i = 0; i < bodyCount; i++) {
+            tracked[i] = null;
+        }
+        bodyCount = 0;
+    }
+
+    private void track(Body body) {
+        if (bodyCount < maxBodies) {
+            tracked[bodyCount++] = body;
+        }
+    }
+
+    /**
+     * Records the current state of the level as the newest frame.
+     *
+     * @param score  the player's score.
+     * @param health the player's health.
+     */
+    public void record(int score, int health) {
+        if (level == null) {
+            return;
+        }
+        newest = (newest + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+        frameScore[newest] = score;
+        frameHealth[newest] = health;
+        frameBodies[newest] = bodyCount;
+        int base = newest * maxBodies;
+        for (int i = 0; i < bodyCount; i++) {
+            Body body = tracked[i];
+            int r = base + i;
+            Vec2 position = body.getPosition();
+            x[r] = position.x;
+            y[r] = position.y;
+            byte f = ENABLED;
+            if (body instanceof DynamicBody) {
+                Vec2 velocity = ((DynamicBody) body).getLinearVelocity();
+                vx[r] = velocity.x;
+                vy[r] = velocity.y;
+                if (body instanceof PatrollingEnemy && ((PatrollingEnemy) body).isMovingRight()) {
+                    f |= RIGHT;
+                }
+            } else if (body instanceof MovingPlatform) {
+                extra[r] = ((MovingPlatform) body).getPathProgress();
+            } else if (body instanceof DisappearingPlatform) {
+                DisappearingPlatform platform = (DisappearingPlatform) body;
+                extra[r] = platform.getFlickerCounter();
+                if (platform.isGone()) {
+                    f = 0;
+                }
+            } else if (((Collectible) body).slot < 0) {
+                f = 0; //Collected
+            }
+            flags[r] = f;
+        }
+    }
+
+    /**
+     * Goes back in time, dropping the newest frames and restoring the level to the one before them.
+     * The restored frame is kept as the newest, so the next rewind carries on from it. Rewinding
+     * stops once it is the only frame left.
+     *
+     * @param frames how many frames to go back (the rewind speed).
+     * @return false if there was nothing left to rewind.
+     */
+    public boolean rewind(int frames) {
+        if (level == null || size == 0) {
+            return false;
+        }
+        if (size == 1) {
+            //The level has stepped on since this frame was restored, so start recording again from now
+            newest = -1;
+            size = 0;
+            return false;
+        }
+        int back = Math.min(frames, size - 1);
+        newest = (newest - back + capacity) % capacity;
+        size -= back;
+        restore(newest);
+        return true;
+    }
+
+    private void restore(int frame) {
+        restoredScore = frameScore[frame];
+        restoredHealth = frameHealth[frame];
+        int base = frame * maxBodies;
+        CollectibleManager coins = level.getCollectibleManager();
+        for (int i = 0; i < frameBodies[frame]; i++) {
+            Body body = tracked[i];
+            int r = base + i;
+            boolean enabled = (flags[r] & ENABLED) != 0;
+            if (body instanceof DynamicBody) {
+                DynamicBody dynamic = (DynamicBody) body;
+                dynamic.setPosition(scratch.set(x[r], y[r]));
+                dynamic.setLinearVelocity(scratch.set(vx[r], vy[r]));
+                if (body instanceof PatrollingEnemy) {
+                    ((PatrollingEnemy) body).setMovingRight((flags[r] & RIGHT) != 0);
+                }
+            } else if (body instanceof MovingPlatform) {
+                ((MovingPlatform) body).setPathProgress(extra[r]);
+            } else if (body instanceof DisappearingPlatform) {
+                ((DisappearingPlatform) body).restore((int) extra[r], !enabled);
+            } else {
+                Collectible coin = (Collectible) body;
+                if (enabled && coin.slot < 0) {
+                    tracked[i] = coins.spawnCollectible(x[r], y[r]); //Bring a collected coin back
+                } else if (!enabled && coin.slot >= 0) {
+                    coins.removeCollectible(coin);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the score saved with the frame the last rewind went back to.
+     *
+     * @return the score.
+     */
+    public int getScore() {
+        return restoredScore;
+    }
+
+    /**
+     * Returns the health saved with the frame the last rewind went back to.
+     *
+     * @return the health.
+     */
+    public int getHealth() {
+        return restoredHealth;
+    }
+
+    /**
+     * Returns how many frames are stored.
+     *
+     * @return the number of frames that can be rewound.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the memory used by the record arrays, which never changes.
+     *
+     * @return the size in bytes.
+     */
+    public long getMemoryBytes() {
+        return (long) capacity * maxBodies * (5 * Float.BYTES + 1) + capacity * 3L * Integer.BYTES;
+    }
+}
@@ -0,0 +1,281 @@
+package game;
+
+import city.cs.engine.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many copies of a level at once with no window, one level per task on a work-stealing pool.
+ * Each copy is played by random input (seeded, so a run can be repeated) or by a recorded replay,
+ * and stepped as fast as it will go until the player dies, leaves or wins, or time runs out.
+ * Reports the throughput and how the runs went, for balancing levels and load-testing the step.
+ * Every level is its own World that owns its systems (movement, contacts, triggers, timers and
+ * collision matrix), so the tasks share no locks while building or stepping levels, and a
+ * finished run's level can be collected straight away.
+ *
+ * Run with: java game.SimulationFarm [runs] [Level1|Level2|Level3|level file|replay.rpl] [maxSteps] [threads] [--scaling]
+ */
+
+public class SimulationFarm {
+    //Fields
+    private final ForkJoinPool pool;
+    private final int threads;
+
+    /**
+     * How one run ended.
+     */
+    public enum Outcome { DIED, EXITED, WON, TIMED_OUT }
+
+    /**
+     * The result of one run.
+     */
+    public static final class Run {
+        public final long seed;
+        public final Outcome outcome;
+        public final int steps;
+        public final int score;
+        public final int health;
+
+        Run(long seed, Outcome outcome, int steps, int score, int health) {
+            this.seed = seed;
+            this.outcome = outcome;
+            this.steps = steps;
+            this.score = score;
+            this.health = health;
+        }
+    }
+
+    /**
+     * Constructor for the simulation farm.
+     *
+     * @param threads the number of worker threads, usually the number of cores.
+     */
+    public SimulationFarm(int threads) {
+        this.threads = threads;
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Plays a level the given number of times, spread over the worker threads.
+     *
+     * @param levelName the level to build for each run (see GameLevel.create).
+     * @param replay    the input to play every run with, or null for random input seeded by run number.
+     * @param runs      the number of runs.
+     * @param maxSteps  the most steps each run may take.
+     * @return the results, in run order.
+     */
+    public List<Run> play(String levelName, InputLog replay, int runs, int maxSteps) {
+        List<Callable<Run>> tasks = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            long seed = i;
+            tasks.add(() -> playOnce(levelName, replay, seed, maxSteps));
+        }
+        List<Run> results = new ArrayList<>(runs);
+        for (Future<Run> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (Exception e) {
+                throw new IllegalStateException("Simulation run failed", e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    //Builds and plays one level on the calling thread
+    private static Run playOnce(String levelName, InputLog replay, long seed, int maxSteps) {
+        GameLevel level = GameLevel.create(levelName);
+        DynamicBody student = level.getStudent();
+        PlayerControls controls = new PlayerControls(student);
+        controls.setInputSource(replay != null ? replay.player() : new RandomInput(seed));
+        controls.setQuiet(true);
+        if (level.getChunkManager() != null) {
+            level.addStepListener(new StepListener() {
+                @Override
+                public void preStep(StepEvent stepEvent) {
+                    level.getChunkManager().update(student.getPosition().y);
+                }
+
+                @Override
+                public void postStep(StepEvent stepEvent) {
+                }
+            });
+        }
+        Outcome[] outcome = {Outcome.TIMED_OUT};
+        GameRules rules = new GameRules(new GameRules.Listener() {
+            @Override
+            public void died() {
+                outcome[0] = Outcome.DIED;
+            }
+
+            @Override
+            public void won() {
+                outcome[0] = Outcome.WON;
+            }
+
+            @Override
+            public void reachedExit(GameLevel exited) {
+                outcome[0] = Outcome.EXITED;
+            }
+        });
+        rules.attach(level);
+
+        int steps = 0;
+        while (outcome[0] == Outcome.TIMED_OUT && steps < maxSteps) {
+            level.oneStep();
+            steps++;
+        }
+        return new Run(seed, outcome[0], steps, rules.getScore(), rules.getHealth());
+    }
+
+    /**
+     * Random input that holds a direction for a while, and now and then presses jump.
+     * The same seed always gives the same input.
+     */
+    static final class RandomInput implements PlayerControls.InputSource {
+        private final Random random;
+        private int direction = 0;
+        private int stepsLeft = 0; //Steps until the direction changes
+
+        RandomInput(long seed) {
+            random = new Random(seed);
+        }
+
+        @Override
+        public int nextInput() {
+            if (stepsLeft-- <= 0) {
+                int pick = random.nextInt(5);
+                direction = pick < 2 ? PlayerControls.RIGHT : pick < 4 ? PlayerControls.LEFT : 0;
+                stepsLeft = 15 + random.nextInt(75);
+            }
+            //About two jumps a second
+            if (random.nextInt(30) == 0) {
+                return direction | PlayerControls.JUMP | PlayerControls.JUMP_PRESSED;
+            }
+            return direction;
+        }
+    }
+
+    /**
+     * Prints throughput, outcome rates and the score distribution of a batch of runs.
+     *
+     * @param results the runs.
+     * @param nanos   how long the batch took.
+     */
+    public void printSummary(List<Run> results, long nanos) {
+        long totalSteps = 0;
+        int[] outcomes = new int[Outcome.values().length];
+        int[] scores = new int[results.size()];
+        int[] stepCounts = new int[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            Run run = results.get(i);
+            totalSteps += run.steps;
+            outcomes[run.outcome.ordinal()]++;
+            scores[i] = run.score;
+            stepCounts[i] = run.steps;
+        }
+        double seconds = nanos / 1e9;
+        double stepsPerSecond = totalSteps / seconds;
+        System.out.printf("%d runs on %d threads in %.2f s: %.0f steps/s (%.0f per thread, %.0fx real time)%n",
+                results.size(), threads, seconds, stepsPerSecond, stepsPerSecond / threads, stepsPerSecond / 60);
+        for (Outcome outcome : Outcome.values()) {
+            System.out.printf("  %-9s %6d (%5.1f%%)%n", outcome, outcomes[outcome.ordinal()],
+                    100.0 * outcomes[outcome.ordinal()] / results.size());
+        }
+        System.out.println("  score  " + distribution(scores));
+        System.out.println("  steps  " + distribution(stepCounts));
+    }
+
+    //Min, quartiles, 90th percentile and max of some values
+    private static String distribution(int[] values) {
+        if (values.length == 0) {
+            return "-";
+        }
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (int value : sorted) {
+            sum += value;
+        }
+        return String.format("min %d  p25 %d  median %d  p75 %d  p90 %d  max %d  mean %.1f",
+                sorted[0], percentile(sorted, 25), percentile(sorted, 50), percentile(sorted, 75),
+                percentile(sorted, 90), sorted[sorted.length - 1], (double) sum / sorted.length);
+    }
+
+    private static int percentile(int[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        boolean scaling = Arrays.asList(args).contains("--scaling");
+        args = Arrays.stream(args).filter(a -> !a.equals("--scaling")).toArray(String[]::new);
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String level = args.length > 1 ? args[1] : "Level1";
+        int maxSteps = args.length > 2 ? Integer.parseInt(args[2]) : 3600; //One minute of game time
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : cores;
+
+        InputLog replay = null;
+        if (level.endsWith(".rpl")) {
+            replay = InputLog.read(Paths.get(level));
+            level = replay.getLevelName();
+        }
+        System.out.println("Playing " + level + (replay != null ? " with a replay" : " with random input")
+                + ", up to " + maxSteps + " steps per run");
+
+        //Warm up the step code before timing anything
+        SimulationFarm warmup = new SimulationFarm(threads);
+        warmup.play(level, replay, Math.max(threads, runs / 10), maxSteps);
+        warmup.shutdown();
+
+        if (scaling) {
+            //Time the same batch on 1, 2, 4 ... threads to see how close to linear it scales
+            List<Integer> counts = new ArrayList<>();
+            for (int n = 1; n < threads; n *= 2) {
+                counts.add(n);
+            }
+            counts.add(threads);
+            double single = 0;
+            for (int n : counts) {
+                SimulationFarm farm = new SimulationFarm(n);
+                long start = System.nanoTime();
+                List<Run> results = farm.play(level, replay, runs, maxSteps);
+                long nanos = System.nanoTime() - start;
+                farm.shutdown();
+                long steps = 0;
+                for (Run run : results) {
+                    steps += run.steps;
+                }
+                double rate = steps / (nanos / 1e9);
+                if (n == 1) {
+                    single = rate;
+                }
+                System.out.printf("%3d threads: %10.0f steps/s, speedup %5.2f (%3.0f%% of linear)%n",
+                        n, rate, rate / single, 100 * rate / single / n);
+            }
+            return;
+        }
+
+        SimulationFarm farm = new SimulationFarm(threads);
+        long start = System.nanoTime();
+        List<Run> results = farm.play(level, replay, runs, maxSteps);
+        long nanos = System.nanoTime() - start;
+        farm.shutdown();
+        farm.printSummary(results, nanos);
+    }
+}
@@ -0,0 +1,45 @@
+package game;
+
+import city.cs.engine.BodyImage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one shared BodyImage per sprite file and height.
+ * Entities ask the registry instead of creating their own BodyImage, so a level with dozens
+ * of enemies or coins still only holds one image object for each sprite.
+ */
+
+public final class SpriteRegistry {
+    //Sprite files used by the game's entities
+    public static final String PLAYER = "data/sprite-new2.png";
+    public static final String ENEMY = "data/enemy-new.png";
+    public static final String COLLECTIBLE = "data/collectible.png";
+    public static final String PLATFORM = "data/platform.jpg";
+
+    private static final Map<String, BodyImage> images = new ConcurrentHashMap<>();
+
+    private SpriteRegistry() {
+    }
+
+    /**
+     * Returns the shared BodyImage for a sprite at a given height.
+     *
+     * @param path   the file path of the sprite.
+     * @param height the height of the image in world units.
+     * @return the shared BodyImage.
+     */
+    public static BodyImage get(String path, float height) {
+        return images.computeIfAbsent(path + "@" + height, key -> new BodyImage(path, height));
+    }
+
+    /**
+     * Returns how many distinct BodyImage objects have been handed out.
+     *
+     * @return the number of (sprite, height) pairs in the registry.
+     */
+    public static int size() {
+        return images.size();
+    }
+}
@@ -0,0 +1,287 @@
+package game;
+
+import city.cs.engine.*;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Runs callbacks after a number of simulation steps, for timed effects such as a platform's flicker.
+ * Time is counted in the level's steps, so timers pause with the level and replay exactly.
+ * Callbacks run at the start of a step, before the bodies move.
+ *
+ * Timers sit in a hierarchical timing wheel: 256 slots, one per step, for the next 256 steps,
+ * then three rings of 64 slots covering 256, 16384 and 1048576 steps each. Each step runs the
+ * current slot, and every 256 steps the next slot of the ring above is spread out over the one
+ * below. Scheduling, cancelling and firing are all O(1), and the cost of a step does not depend on
+ * how many timers are waiting. Timers given an owner body are cancelled when the body is destroyed.
+ */
+
+public class TimerWheel implements StepListener {
+    private static final int LEVEL0_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVELS = 4;
+    private static final int LEVEL0_SLOTS = 1 << LEVEL0_BITS;
+    private static final int LEVEL_SLOTS = 1 << LEVEL_BITS;
+    static final long MAX_DELAY = (1L << (LEVEL0_BITS + (LEVELS - 1) * LEVEL_BITS)) - 1; //About 13 days at 60 steps per second
+    private static final float STEPS_PER_SECOND = 60;
+
+    /**
+     * A scheduled callback, which can be cancelled until it runs.
+     */
+    public static final class Timer {
+        private final Runnable task;
+        private final Body owner;
+        private long deadline;
+        private Timer prev, next; //Neighbours in the wheel slot
+        private Timer ownerPrev, ownerNext; //Neighbours among the owner's timers
+        private int level = -1; //Level and slot it is waiting in, or -1 once run or cancelled
+        private int slot;
+
+        private Timer(Runnable task, Body owner, long deadline) {
+            this.task = task;
+            this.owner = owner;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Checks whether the timer is still waiting to run.
+         *
+         * @return true until it runs or is cancelled.
+         */
+        public boolean isPending() {
+            return level >= 0;
+        }
+
+        /**
+         * Gets the step the timer runs at.
+         *
+         * @return the step number, as counted by TimerWheel.now().
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    //Fields
+    private final Timer[][] slots = new Timer[LEVELS][];
+    private final Map<Body, Timer> owned = new IdentityHashMap<>(); //First timer of each owner with timers
+    private long now = 0;
+    private int pending = 0;
+
+    /**
+     * Creates an empty wheel at step 0. Levels create their own, so use GameLevel.getTimerWheel;
+     * a wheel made here must have preStep called by whoever owns it.
+     */
+    TimerWheel() {
+        slots[0] = new Timer[LEVEL0_SLOTS];
+        for (int level = 1; level < LEVELS; level++) {
+            slots[level] = new Timer[LEVEL_SLOTS];
+        }
+    }
+
+    /**
+     * Gets the number of steps the wheel has run.
+     *
+     * @return the current step.
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Gets the number of timers waiting to run.
+     *
+     * @return the pending count.
+     */
+    public int size() {
+        return pending;
+    }
+
+    /**
+     * Runs a callback after a number of steps.
+     *
+     * @param owner the body the timer belongs to, cancelled with it when it is destroyed, or null.
+     * @param steps how many steps from now (at least 1).
+     * @param task  the callback.
+     * @return the timer, for cancelling it.
+     */
+    public Timer schedule(Body owner, long steps, Runnable task) {
+        Timer timer = new Timer(task, owner, now + Math.max(1, steps));
+        insert(timer);
+        pending++;
+        if (owner != null) {
+            Timer first = owned.get(owner);
+            if (first == null && !owned.containsKey(owner)) {
+                owner.addDestructionListener(e -> {
+                    cancelAll(owner);
+                    owned.remove(owner);
+                });
+            }
+            timer.ownerNext = first;
+            if (first != null) {
+                first.ownerPrev = timer;
+            }
+            owned.put(owner, timer);
+        }
+        return timer;
+    }
+
+    /**
+     * Runs a callback after an amount of simulation time.
+     *
+     * @param owner   the body the timer belongs to, or null.
+     * @param seconds how long from now, in simulated seconds.
+     * @param task    the callback.
+     * @return the timer, for cancelling it.
+     */
+    public Timer scheduleSeconds(Body owner, float seconds, Runnable task) {
+        return schedule(owner, Math.round(seconds * STEPS_PER_SECOND), task);
+    }
+
+    /**
+     * Stops a timer running. Cancelling a timer that has already run or been cancelled does nothing.
+     *
+     * @param timer the timer, or null.
+     */
+    public void cancel(Timer timer) {
+        if (timer == null || timer.level < 0) {
+            return;
+        }
+        unlink(timer);
+        forget(timer);
+    }
+
+    /**
+     * Cancels every timer belonging to a body. Done automatically when the body is destroyed.
+     *
+     * @param owner the body.
+     */
+    public void cancelAll(Body owner) {
+        Timer timer = owned.get(owner);
+        while (timer != null) {
+            Timer next = timer.ownerNext;
+            unlink(timer);
+            timer.level = -1;
+            timer.ownerPrev = null;
+            timer.ownerNext = null;
+            pending--;
+            timer = next;
+        }
+        //Keep the entry, so the destruction listener is not added twice
+        if (owned.containsKey(owner)) {
+            owned.put(owner, null);
+        }
+    }
+
+    /**
+     * Moves the wheel on one step and runs the timers that are due.
+     *
+     * @param stepEvent the event triggered at each simulation step
+     */
+    @Override
+    public void preStep(StepEvent stepEvent) {
+        now++;
+        int index = (int) (now & (LEVEL0_SLOTS - 1));
+        if (index == 0) {
+            //Spread the next slot of each ring over the ring below, going up while a ring wraps round
+            for (int level = 1; level < LEVELS; level++) {
+                int slot = slotIndex(now, level);
+                cascade(level, slot);
+                if (slot != 0) {
+                    break;
+                }
+            }
+        }
+        //Take timers off the front one at a time, as a callback may cancel the others in the slot
+        Timer timer;
+        while ((timer = slots[0][index]) != null) {
+            unlink(timer);
+            if (timer.deadline > now) {
+                //Was too far ahead for the wheel, so wait another lap
+                insert(timer);
+            } else {
+                forget(timer);
+                timer.task.run();
+            }
+        }
+    }
+
+    @Override
+    public void postStep(StepEvent stepEvent) {
+    }
+
+    private void cascade(int level, int slot) {
+        Timer timer = slots[level][slot];
+        slots[level][slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    //Puts a timer in the slot its deadline falls in
+    private void insert(Timer timer) {
+        long delay = timer.deadline - now;
+        long when = delay > MAX_DELAY ? now + MAX_DELAY : timer.deadline;
+        delay = when - now;
+        int level = 0;
+        long span = LEVEL0_SLOTS;
+        while (delay >= span && level < LEVELS - 1) {
+            level++;
+            span <<= LEVEL_BITS;
+        }
+        int slot = slotIndex(when, level);
+        Timer head = slots[level][slot];
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        slots[level][slot] = timer;
+        timer.level = level;
+        timer.slot = slot;
+    }
+
+    private static int slotIndex(long step, int level) {
+        if (level == 0) {
+            return (int) (step & (LEVEL0_SLOTS - 1));
+        }
+        return (int) ((step >> (LEVEL0_BITS + (level - 1) * LEVEL_BITS)) & (LEVEL_SLOTS - 1));
+    }
+
+    //Takes a timer out of its wheel slot
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else if (timer.level >= 0 && slots[timer.level][timer.slot] == timer) {
+            slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    //Marks a timer as no longer pending and takes it off its owner's list
+    private void forget(Timer timer) {
+        timer.level = -1;
+        pending--;
+        if (timer.owner == null) {
+            return;
+        }
+        if (timer.ownerPrev != null) {
+            timer.ownerPrev.ownerNext = timer.ownerNext;
+        } else {
+            owned.put(timer.owner, timer.ownerNext);
+        }
+        if (timer.ownerNext != null) {
+            timer.ownerNext.ownerPrev = timer.ownerPrev;
+        }
+        timer.ownerPrev = null;
+        timer.ownerNext = null;
+    }
+}
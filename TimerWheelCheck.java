@@ -0,0 +1,79 @@
+package game;
+
+import city.cs.engine.*;
+
+/**
+ * Checks that TimerWheel runs timers on exactly the step they are due.
+ * Timers are scheduled with delays either side of each ring's span (256, 16384, 1048576),
+ * at the longest delay the wheel holds and past it, starting at several points in the wheel's
+ * lap so some of them cross a cascade. Each one must run once, on its deadline step.
+ * Exits with status 1 if any timer runs early, late, twice or not at all, or if the wheel stops
+ * moving on (a timer being put back in the slot it was just taken from would loop forever).
+ * Run with: java game.TimerWheelCheck
+ */
+
+public class TimerWheelCheck {
+    private static final long[] DELAYS = {
+            1, 2, 255, 256, 257,
+            16383, 16384, 16385,
+            1048575, 1048576, 1048577,
+            TimerWheel.MAX_DELAY - 1, TimerWheel.MAX_DELAY, TimerWheel.MAX_DELAY + 1,
+            TimerWheel.MAX_DELAY + 256, 2 * TimerWheel.MAX_DELAY + 3
+    };
+    private static final long[] STARTS = {0, 1, 200, 255, 256, 16383, 16384, 1048575};
+    private static final long TIME_LIMIT_MILLIS = 60_000; //The whole run takes about half a second
+
+    public static void main(String[] args) throws InterruptedException {
+        TimerWheel wheel = new TimerWheel();
+        StepEvent event = new StepEvent();
+        int count = DELAYS.length * STARTS.length;
+        long[] due = new long[count];
+        long[] ran = new long[count];
+        int[] runs = new int[count];
+
+        //Schedule every delay from each starting step, then step past the last deadline
+        Thread stepping = new Thread(() -> {
+            long last = 0;
+            int i = 0;
+            for (long start : STARTS) {
+                while (wheel.now() < start) {
+                    wheel.preStep(event);
+                }
+                for (long delay : DELAYS) {
+                    int timer = i++;
+                    due[timer] = wheel.now() + delay;
+                    last = Math.max(last, due[timer]);
+                    wheel.schedule(null, delay, () -> {
+                        ran[timer] = wheel.now();
+                        runs[timer]++;
+                    });
+                }
+            }
+            while (wheel.now() < last) {
+                wheel.preStep(event);
+            }
+        }, "wheel");
+        stepping.setDaemon(true);
+        stepping.start();
+        stepping.join(TIME_LIMIT_MILLIS);
+        if (stepping.isAlive()) {
+            System.out.println("The wheel stopped moving on at step " + wheel.now());
+            System.exit(1);
+        }
+
+        int failures = 0;
+        for (int timer = 0; timer < count; timer++) {
+            if (runs[timer] != 1 || ran[timer] != due[timer]) {
+                failures++;
+                System.out.printf("Delay %d from step %d: due at %d, ran %d times, last at %d%n",
+                        DELAYS[timer % DELAYS.length], STARTS[timer / DELAYS.length], due[timer], runs[timer], ran[timer]);
+            }
+        }
+        if (wheel.size() != 0) {
+            failures++;
+            System.out.println(wheel.size() + " timers still pending");
+        }
+        System.out.printf("%d/%d timers ran on their deadline step%n", count - failures, count);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
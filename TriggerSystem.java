@@ -0,0 +1,144 @@
+package game;
+
+import city.cs.engine.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Passes on the enter and leave events of a level's TriggerVolumes.
+ * The engine reports sensor contacts while JBox2D is in the middle of a step, when the world
+ * cannot be changed, so events are queued and handed to the listeners after the step. That way
+ * a listener can move the player or switch level. A step with no events costs one check.
+ */
+
+public class TriggerSystem implements StepListener {
+    /**
+     * Told when bodies go in and out of triggers.
+     */
+    public interface Listener {
+        /**
+         * Called when a body starts touching a trigger.
+         *
+         * @param trigger the trigger.
+         * @param body    the body.
+         */
+        void entered(TriggerVolume trigger, Body body);
+
+        /**
+         * Called when a body stops touching a trigger. Does nothing by default.
+         *
+         * @param trigger the trigger.
+         * @param body    the body.
+         */
+        default void left(TriggerVolume trigger, Body body) {
+        }
+    }
+
+    //Fields
+    private final List<TriggerVolume> triggers = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    //Events waiting for the end of the step
+    private TriggerVolume[] queuedTrigger = new TriggerVolume[4];
+    private Body[] queuedBody = new Body[4];
+    private boolean[] queuedEnter = new boolean[4];
+    private int queued = 0;
+
+    //Events being handed out, swapped with the queue so listeners can queue more without allocating
+    private TriggerVolume[] sendingTrigger = new TriggerVolume[4];
+    private Body[] sendingBody = new Body[4];
+    private boolean[] sendingEnter = new boolean[4];
+
+    /**
+     * Creates an empty trigger system. Levels create their own, so use GameLevel.getTriggerSystem.
+     */
+    TriggerSystem() {
+    }
+
+    /**
+     * Adds a listener for the level's triggers.
+     *
+     * @param listener the listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addListener.
+     *
+     * @param listener the listener.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the level's triggers, e.g. for drawing them while debugging.
+     *
+     * @return the triggers (read only).
+     */
+    public List<TriggerVolume> getTriggers() {
+        return Collections.unmodifiableList(triggers);
+    }
+
+    void add(TriggerVolume trigger) {
+        triggers.add(trigger);
+    }
+
+    //Called by the trigger's sensor during the step
+    void queue(TriggerVolume trigger, Body body, boolean enter) {
+        if (queued == queuedTrigger.length) {
+            queuedTrigger = Arrays.copyOf(queuedTrigger, queued * 2);
+            queuedBody = Arrays.copyOf(queuedBody, queued * 2);
+            queuedEnter = Arrays.copyOf(queuedEnter, queued * 2);
+        }
+        queuedTrigger[queued] = trigger;
+        queuedBody[queued] = body;
+        queuedEnter[queued] = enter;
+        queued++;
+    }
+
+    @Override
+    public void preStep(StepEvent stepEvent) {
+    }
+
+    /**
+     * Hands the step's trigger events to the listeners, in the order they happened.
+     *
+     * @param stepEvent the event triggered at each simulation step
+     */
+    @Override
+    public void postStep(StepEvent stepEvent) {
+        if (queued == 0) {
+            return;
+        }
+        //Listeners may cause more events (e.g. by moving the player), which wait for the next step
+        int count = queued;
+        TriggerVolume[] triggerEvents = queuedTrigger;
+        Body[] bodyEvents = queuedBody;
+        boolean[] enterEvents = queuedEnter;
+        queuedTrigger = sendingTrigger;
+        queuedBody = sendingBody;
+        queuedEnter = sendingEnter;
+        sendingTrigger = triggerEvents;
+        sendingBody = bodyEvents;
+        sendingEnter = enterEvents;
+        queued = 0;
+        for (int i = 0; i < count; i++) {
+            for (int l = 0; l < listeners.size(); l++) {
+                if (enterEvents[i]) {
+                    listeners.get(l).entered(triggerEvents[i], bodyEvents[i]);
+                } else {
+                    listeners.get(l).left(triggerEvents[i], bodyEvents[i]);
+                }
+            }
+            //Let go of the bodies, which may be destroyed before the buffers are used again
+            triggerEvents[i] = null;
+            bodyEvents[i] = null;
+        }
+    }
+}
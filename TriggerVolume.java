@@ -0,0 +1,82 @@
+package game;
+
+import city.cs.engine.*;
+import org.jbox2d.common.Vec2;
+
+/**
+ * An invisible box that reports bodies going in and out of it, such as a level's exit or a checkpoint.
+ * It is a sensor, so JBox2D's broadphase finds the overlaps and nothing is checked while no body
+ * is near it. Its collision group only meets the player, so other bodies never even pair with it.
+ * Events are passed to the level's TriggerSystem, which hands them on after the step.
+ */
+
+public class TriggerVolume extends StaticBody {
+    //Kinds of trigger
+    public static final int EXIT = 0;       //Leaves the level for the next one
+    public static final int WIN = 1;        //Wins the game (the exit of the final level)
+    public static final int CHECKPOINT = 2; //Reported to the rules' listener when the player reaches it
+
+    //Fields
+    private final int kind;
+    private final float width;
+    private final float height;
+
+    /**
+     * Constructor for a trigger volume.
+     *
+     * @param world  the world where the trigger exists
+     * @param kind   one of EXIT, WIN or CHECKPOINT
+     * @param width  half the width of the box
+     * @param height half the height of the box
+     * @param x      the x position of the centre
+     * @param y      the y position of the centre
+     */
+    public TriggerVolume(World world, int kind, float width, float height, float x, float y) {
+        super(world);
+        this.kind = kind;
+        this.width = width;
+        this.height = height;
+        setPosition(new Vec2(x, y));
+
+        TriggerSystem triggers = GameLevel.of(world).getTriggerSystem();
+        triggers.add(this);
+        Sensor sensor = new Sensor(this, new BoxShape(width, height));
+        sensor.addSensorListener(new SensorListener() {
+            @Override
+            public void beginContact(SensorEvent e) {
+                triggers.queue(TriggerVolume.this, e.getContactBody(), true);
+            }
+
+            @Override
+            public void endContact(SensorEvent e) {
+                triggers.queue(TriggerVolume.this, e.getContactBody(), false);
+            }
+        });
+        GameLevel.of(world).getCollisionMatrix().filter(this, CollisionMatrix.TRIGGER);
+    }
+
+    /**
+     * Gets what kind of trigger this is.
+     *
+     * @return EXIT, WIN or CHECKPOINT.
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets half the trigger's width.
+     * @return the half width.
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets half the trigger's height.
+     * @return the half height.
+     */
+    public float getHeight() {
+        return height;
+    }
+}